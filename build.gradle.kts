@@ -6,6 +6,7 @@ plugins {
     java
     id("org.springframework.boot") version "4.0.2"
     id("io.spring.dependency-management") version "1.1.7"
+    id("me.champeau.jmh") version "0.7.3"
     checkstyle
 }
 
@@ -33,16 +34,67 @@ repositories {
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-jdbc")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("org.postgresql:postgresql")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
     testImplementation("org.springframework.boot:spring-boot-starter-webmvc-test")
     testImplementation ("com.h2database:h2")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+    jmh("com.h2database:h2")
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
+    // печатает стек, если виртуальный поток блокируется, будучи закреплён за потоком-носителем
+    jvmArgs("-Djdk.tracePinnedThreads=short")
+}
+
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("load")
+    }
+}
+
+// Нагрузочные тесты (@Tag("load")) — несколько минут, отдельно от обычных: gradle loadTest
+val loadTest by tasks.registering(Test::class) {
+    description = "Runs the load tests."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("load")
+    }
+    // замеры печатаются при каждом запуске, не только при падении
+    testLogging.showStandardStreams = true
+    shouldRunAfter(tasks.test)
+}
+
+// Микробенчмарки: ./gradlew jmh
+jmh {
+    jmhVersion = "1.37"
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+    // JSON можно сравнивать между запусками (например, в jmh.morethan.io)
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    // ./gradlew jmh -Pjmh.includes=PostServiceBenchmark
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+    // бенчмарки на PostgreSQL вместо H2: -Pjmh.postgres.url=jdbc:postgresql://localhost:5432/bench
+    // (посты и теги этой базы будут перезаписаны), объём данных: -Pjmh.posts=1000000
+    listOf("postgres.url", "postgres.username", "postgres.password", "posts").forEach { name ->
+        providers.gradleProperty("jmh.$name").orNull?.let { jvmArgsAppend.add("-Dbenchmark.$name=$it") }
+    }
+}
+
+// в общем jar есть классы Spring для Java 21 (META-INF/versions/21), без этого атрибута
+// контекст приложения в бенчмарках не создаёт виртуальные потоки
+tasks.named<Jar>("jmhJar") {
+    manifest {
+        attributes("Multi-Release" to "true")
+    }
 }
 
 checkstyle {
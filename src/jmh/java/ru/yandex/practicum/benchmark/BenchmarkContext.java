@@ -0,0 +1,98 @@
+package ru.yandex.practicum.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.BackendAppApplication;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Контекст приложения без веб-сервера с заполненными постами и тегами: H2 в памяти или,
+// если задан -Pjmh.postgres.url, отдельная база PostgreSQL (её посты и теги будут удалены)
+final class BenchmarkContext {
+    static final String POSTGRES_URL = System.getProperty("benchmark.postgres.url");
+    static final int POSTS = Integer.getInteger("benchmark.posts", 10_000);
+    static final int TAGS = 50;
+    static final int TAGS_PER_POST = 3;
+
+    private static final int BATCH = 10_000;
+
+    private static final String[] PROPERTIES = {
+            "blog.search.mode=like",
+            "blog.comments.reconcile.enabled=false",
+            "blog.tags.reconcile.enabled=false",
+            "blog.likes.write-behind.enabled=false"
+    };
+
+    private static final String[] H2 = {
+            "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            // только schema.sql, schema-postgresql.sql для H2 не подходит
+            "spring.sql.init.platform=h2"
+    };
+
+    private BenchmarkContext() {
+    }
+
+    static boolean onPostgres() {
+        return POSTGRES_URL != null;
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        String[] datasource = onPostgres()
+                ? new String[]{
+                        "spring.datasource.url=" + POSTGRES_URL,
+                        "spring.datasource.username=" + System.getProperty("benchmark.postgres.username", "postgres"),
+                        "spring.datasource.password=" + System.getProperty("benchmark.postgres.password", "")}
+                : H2;
+        //command-line arguments take precedence over application.properties, also the test one on the jmh classpath
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BackendAppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(Stream.of(PROPERTIES, datasource, properties)
+                        .flatMap(Arrays::stream)
+                        .map(property -> "--" + property)
+                        .toArray(String[]::new));
+
+        seed(context.getBean(JdbcTemplate.class));
+        return context;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate) {
+        //the data survives between trials (DB_CLOSE_DELAY, or a real database), 1M posts take minutes to insert
+        Integer posts = jdbcTemplate.queryForObject("SELECT count(*) FROM posts", Integer.class);
+        Integer tags = jdbcTemplate.queryForObject("SELECT count(*) FROM tags", Integer.class);
+        if (posts != null && posts == POSTS && tags != null && tags == TAGS) {
+            return;
+        }
+
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.execute("DELETE FROM tags");
+
+        List<Object[]> tagRows = new ArrayList<>();
+        for (int i = 1; i <= TAGS; i++) {
+            tagRows.add(new Object[]{i, "tag" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tags (id, name) VALUES (?, ?)", tagRows);
+
+        List<Object[]> postRows = new ArrayList<>(BATCH);
+        List<Object[]> links = new ArrayList<>(BATCH * TAGS_PER_POST);
+        for (long id = 1; id <= POSTS; id++) {
+            postRows.add(new Object[]{id, "Post title " + id, ("Post text " + id + " ").repeat(20), (int) (id % 100)});
+            for (int t = 0; t < TAGS_PER_POST; t++) {
+                links.add(new Object[]{(int) ((id + t) % TAGS) + 1, id});
+            }
+            if (postRows.size() == BATCH || id == POSTS) {
+                jdbcTemplate.batchUpdate("INSERT INTO posts (id, title, text, likes_count) VALUES (?, ?, ?, ?)",
+                        postRows);
+                jdbcTemplate.batchUpdate("INSERT INTO post_tag_links (tag_id, post_id) VALUES (?, ?)", links);
+                postRows.clear();
+                links.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.interfaces.PostRepository;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Чтение поста в обход PostCache: один запрос с тегами и количеством комментариев
+// против прежних трёх (пост, теги, комментарии). На H2 в памяти сетевой задержки нет,
+// поэтому разница заметна в полной мере только с -Pjmh.postgres.url
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GetPostBenchmark {
+    private static final long POST_ID = BenchmarkContext.POSTS / 2;
+
+    private ConfigurableApplicationContext context;
+    private PostRepository postRepository;
+    private TagRepository tagRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start();
+        postRepository = context.getBean("JdbcPostRepository", PostRepository.class);
+        tagRepository = context.getBean("JdbcTagRepository", TagRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Post singleQuery() {
+        return postRepository.getPost(POST_ID).orElseThrow();
+    }
+
+    @Benchmark
+    public Object[] threeRoundTrips() {
+        //language=SQL
+        Map<String, Object> post = jdbcTemplate.queryForMap(
+                "SELECT id, title, text, likes_count FROM posts WHERE id = ?", POST_ID);
+        List<String> tags = tagRepository.getTagsForPost(POST_ID);
+        //language=SQL
+        Integer comments = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM comments WHERE post_id = ?", Integer.class, POST_ID);
+        return new Object[]{post, tags, comments};
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import ru.yandex.practicum.service.IdGenerator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Генерация id новых постов и комментариев, в один поток и под конкуренцией:
+// IdGenerator против прежнего UUID -> BigDecimal с округлением до 100 000
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IdGeneratorBenchmark {
+    private final IdGenerator idGenerator = new IdGenerator(1);
+
+    @Benchmark
+    public long idGenerator() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long idGeneratorContended() {
+        return idGenerator.nextId();
+    }
+
+    @Benchmark
+    public Long uuidBigDecimal() {
+        return uuidBigDecimalId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long uuidBigDecimalContended() {
+        return uuidBigDecimalId();
+    }
+
+    //прежний Utility.getIdForEntity
+    private static Long uuidBigDecimalId() {
+        return new BigDecimal(Math.abs(UUID.randomUUID().getMostSignificantBits()))
+                .setScale(-5, RoundingMode.UP)
+                .longValue();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.model.dto.PostListDto;
+import ru.yandex.practicum.service.PostService;
+
+import java.util.concurrent.TimeUnit;
+
+// Лента целиком: страница постов, теги, количество постов — через PostService на H2
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PostServiceBenchmark {
+    private static final int DEEP_PAGE = 50;
+
+    @Param({"exact", "cached", "probe"})
+    private String countStrategy;
+
+    @Param({"", "title 42", "#tag7"})
+    private String search;
+
+    private ConfigurableApplicationContext context;
+    private PostService postService;
+    private String deepCursor;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start("blog.posts.count-strategy=" + countStrategy);
+        postService = context.getBean(PostService.class);
+
+        //the cursor at the same depth as deepPage; a search with fewer pages stops at its last one
+        String cursor = null;
+        for (int page = 1; page < DEEP_PAGE; page++) {
+            String next = postService.getPosts(search, 10, cursor).getNextCursor();
+            if (next == null) {
+                break;
+            }
+            cursor = next;
+        }
+        deepCursor = cursor;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PostListDto firstPage() {
+        return postService.getPosts(search, 10, 1);
+    }
+
+    @Benchmark
+    public PostListDto deepPage() {
+        return postService.getPosts(search, 10, DEEP_PAGE);
+    }
+
+    @Benchmark
+    public PostListDto firstPageByCursor() {
+        return postService.getPosts(search, 10, (String) null);
+    }
+
+    // OFFSET пропускает (DEEP_PAGE - 1) * 10 строк, keyset начинает сразу с id из курсора
+    @Benchmark
+    public PostListDto deepPageByCursor() {
+        return postService.getPosts(search, 10, deepCursor);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Отображение 10 000 строк в модели: BeanPropertyRowMapper, создаваемый на каждый запрос (как было
+// в репозиториях), против RowMappers. Запросы одинаковые, разница — стоимость отображения строк
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RowMapperBenchmark {
+    private static final int ROWS = 10_000;
+
+    //language=SQL
+    private static final String POSTS_SQL = """
+            SELECT id, title, text, likes_count AS likesCount, comments_count AS commentsCount
+            FROM posts
+            """;
+    //language=SQL
+    private static final String COMMENTS_SQL = "SELECT id, text, post_id AS postId FROM comments";
+    //language=SQL
+    private static final String IMAGES_SQL = """
+            SELECT post_id AS postId, file_name AS fileName, content_type AS contentType, file_size AS size,
+                   content_hash AS contentHash, updated_at AS updatedAt, storage_key AS storageKey
+            FROM post_image
+            """;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:row_mapper_benchmark;MODE=PostgreSQL", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("""
+                CREATE TABLE posts (id BIGINT PRIMARY KEY, title VARCHAR(100), text TEXT,
+                                    likes_count INTEGER, comments_count INTEGER)
+                """);
+        jdbcTemplate.execute("CREATE TABLE comments (id BIGINT PRIMARY KEY, text VARCHAR(250), post_id BIGINT)");
+        jdbcTemplate.execute("""
+                CREATE TABLE post_image (post_id BIGINT PRIMARY KEY, file_name VARCHAR(255),
+                                         content_type VARCHAR(100), file_size BIGINT, content_hash VARCHAR(64),
+                                         updated_at TIMESTAMP WITH TIME ZONE, storage_key VARCHAR(64))
+                """);
+
+        for (int i = 1; i <= ROWS; i++) {
+            jdbcTemplate.update("INSERT INTO posts VALUES (?, ?, ?, ?, ?)",
+                    i, "Post title " + i, "Post text, a bit longer than the title " + i, i % 100, i % 10);
+            jdbcTemplate.update("INSERT INTO comments VALUES (?, ?, ?)", i, "Comment " + i, i);
+            jdbcTemplate.update("INSERT INTO post_image VALUES (?, ?, 'image/jpeg', ?, ?, CURRENT_TIMESTAMP, NULL)",
+                    i, "image" + i + ".jpg", 1000L + i, "%064x".formatted(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<Post> postsBeanProperty() {
+        return jdbcTemplate.query(POSTS_SQL, new BeanPropertyRowMapper<>(Post.class));
+    }
+
+    @Benchmark
+    public List<Post> postsIndexed() {
+        return jdbcTemplate.query(POSTS_SQL, RowMappers.POST);
+    }
+
+    @Benchmark
+    public List<Comment> commentsBeanProperty() {
+        return jdbcTemplate.query(COMMENTS_SQL, new BeanPropertyRowMapper<>(Comment.class));
+    }
+
+    @Benchmark
+    public List<Comment> commentsIndexed() {
+        return jdbcTemplate.query(COMMENTS_SQL, RowMappers.COMMENT);
+    }
+
+    @Benchmark
+    public List<PostImage> imagesBeanProperty() {
+        return jdbcTemplate.query(IMAGES_SQL, new BeanPropertyRowMapper<>(PostImage.class));
+    }
+
+    @Benchmark
+    public List<PostImage> imagesIndexed() {
+        return jdbcTemplate.query(IMAGES_SQL, RowMappers.POST_IMAGE);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.yandex.practicum.benchmark;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import ru.yandex.practicum.configuration.DatabaseDialect;
+import ru.yandex.practicum.repository.implementations.JdbcPostRepository;
+import ru.yandex.practicum.repository.search.InMemoryPostSearchIndex;
+import ru.yandex.practicum.repository.search.SearchMode;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Построение запроса ленты и связывание параметров без обращения к базе:
+// шаблон только передаёт готовый PreparedStatementCreator в Blackhole
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SearchCauseBenchmark {
+    @Param({"LIKE", "FULLTEXT"})
+    private SearchMode searchMode;
+
+    @Param({"", "spring", "spring boot jdbc", "#java", "spring #java #jdbc #h2"})
+    private String search;
+
+    private JdbcPostRepository postRepository;
+    private CapturingJdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setup() {
+        jdbcTemplate = new CapturingJdbcTemplate();
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        postRepository = new JdbcPostRepository(new NamedParameterJdbcTemplate(jdbcTemplate), DatabaseDialect.H2,
+                searchMode,
+                beanFactory.getBeanProvider(InMemoryPostSearchIndex.class),
+                beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Benchmark
+    public Integer countQuery(Blackhole blackhole) {
+        jdbcTemplate.blackhole = blackhole;
+        return postRepository.getPostsCount(search);
+    }
+
+    @Benchmark
+    public Object pageQuery(Blackhole blackhole) {
+        jdbcTemplate.blackhole = blackhole;
+        return postRepository.getPosts(search, 10, 40);
+    }
+
+    private static final class CapturingJdbcTemplate extends JdbcTemplate {
+        private Blackhole blackhole;
+
+        @Override
+        public <T> List<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+            blackhole.consume(psc);
+            //одна пустая строка: для подсчёта этого достаточно, страница просто содержит null
+            return Collections.nCopies(1, null);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.model.dto.PostListDto;
+import ru.yandex.practicum.service.PostService;
+
+import java.util.concurrent.TimeUnit;
+
+// title LIKE против tsvector с GIN-индексом. Нужен PostgreSQL, например:
+// ./gradlew jmh -Pjmh.includes=SearchModeBenchmark -Pjmh.postgres.url=jdbc:postgresql://localhost:5432/bench
+//               -Pjmh.postgres.password=... -Pjmh.posts=1000000
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchModeBenchmark {
+    @Param({"like", "fulltext"})
+    private String mode;
+
+    @Param({"title 42", "text 4242"})
+    private String search;
+
+    private ConfigurableApplicationContext context;
+    private PostService postService;
+
+    @Setup
+    public void setup() {
+        if (!BenchmarkContext.onPostgres()) {
+            //the tsvector column and its GIN index exist only in schema-postgresql.sql
+            throw new IllegalStateException("SearchModeBenchmark needs -Pjmh.postgres.url");
+        }
+
+        context = BenchmarkContext.start("blog.search.mode=" + mode, "blog.posts.count-strategy=exact");
+        postService = context.getBean(PostService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // Страница вместе с точным количеством найденных постов
+    @Benchmark
+    public PostListDto firstPage() {
+        return postService.getPosts(search, 10, 1);
+    }
+
+    @Benchmark
+    public PostListDto firstPageByCursor() {
+        return postService.getPosts(search, 10, (String) null);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+// Теги страницы ленты одним запросом, сгруппированные по постам
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TagGroupingBenchmark {
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private TagRepository tagRepository;
+    private List<Long> postIds;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContext.start();
+        tagRepository = context.getBean("JdbcTagRepository", TagRepository.class);
+        postIds = LongStream.rangeClosed(1, pageSize).boxed().toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Map<Long, Set<String>> tagsForPage() {
+        return tagRepository.getTagsForMultiplePostIds(postIds);
+    }
+}
@@ -1,31 +1,77 @@
 package ru.yandex.practicum.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 
 import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
 
 @Configuration
 public class DataSourceConfiguration {
-    // Настройка DataSource — компонент, отвечающий за соединение с базой данных
-    @Bean
+    // Настройка DataSource — пул соединений с базой данных (HikariCP)
+    @Bean(destroyMethod = "close")
     public DataSource dataSource(
             // Настройки соединения возьмём из Environment
             @Value("${spring.datasource.url}") String url,
             @Value("${spring.datasource.username}") String username,
-            @Value("${spring.datasource.password}") String password
+            @Value("${spring.datasource.password}") String password,
+            // Настройки пула
+            @Value("${spring.datasource.hikari.pool-name:blog-pool}") String poolName,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maximumPoolSize,
+            @Value("${spring.datasource.hikari.minimum-idle:2}") int minimumIdle,
+            @Value("${spring.datasource.hikari.idle-timeout:10m}") Duration idleTimeout,
+            @Value("${spring.datasource.hikari.max-lifetime:30m}") Duration maxLifetime,
+            @Value("${spring.datasource.hikari.connection-timeout:5s}") Duration connectionTimeout,
+            @Value("${spring.datasource.hikari.leak-detection-threshold:0}") Duration leakDetectionThreshold,
+            // Серверные prepared statements PostgreSQL
+            @Value("${blog.jdbc.prepare-threshold:1}") int prepareThreshold,
+            @Value("${blog.jdbc.prepared-statement-cache-queries:256}") int preparedStatementCacheQueries,
+            ObjectProvider<MeterRegistry> meterRegistry
     ) {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("org.postgresql.Driver");
-        dataSource.setUrl(url);
-        dataSource.setUsername(username);
-        dataSource.setPassword(password);
+        HikariConfig config = new HikariConfig();
+        // драйвер определяется по url, так работают и PostgreSQL, и H2 в тестах
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+
+        config.setPoolName(poolName);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setMinimumIdle(minimumIdle);
+        config.setIdleTimeout(idleTimeout.toMillis());
+        config.setMaxLifetime(maxLifetime.toMillis());
+        config.setConnectionTimeout(connectionTimeout.toMillis());
+        // 0 — отключено, иначе пишет в лог соединения, удерживаемые дольше порога
+        config.setLeakDetectionThreshold(leakDetectionThreshold.toMillis());
+
+        // запрос готовится на сервере уже при первом выполнении и остаётся в кеше соединения;
+        // текст запросов ленты не зависит от числа тегов, так что кеш не размывается
+        if (url.startsWith("jdbc:postgresql:")) {
+            config.addDataSourceProperty("prepareThreshold", prepareThreshold);
+            config.addDataSourceProperty("preparedStatementCacheQueries", preparedStatementCacheQueries);
+            // пакет INSERT отправляется многострочными INSERT ... VALUES (...), (...) — массовый импорт
+            config.addDataSourceProperty("reWriteBatchedInserts", true);
+        }
+
+        // hikaricp.connections.acquire (время ожидания соединения), .usage, .pending, .timeout
+        meterRegistry.ifAvailable(config::setMetricRegistry);
 
-        return dataSource;
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public DatabaseDialect databaseDialect(DataSource dataSource) throws MetaDataAccessException {
+        return DatabaseDialect.fromProductName(
+                JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName));
     }
 
     // JdbcTemplate — компонент для выполнения запросов
@@ -39,4 +85,3 @@ public class DataSourceConfiguration {
         return new NamedParameterJdbcTemplate(dataSource);
     }
 }
-
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.configuration;
+
+// СУБД, к которой подключено приложение: для PostgreSQL репозитории используют специфичный SQL
+public enum DatabaseDialect {
+    POSTGRESQL,
+    H2,
+    OTHER;
+
+    public static DatabaseDialect fromProductName(String productName) {
+        if ("PostgreSQL".equalsIgnoreCase(productName)) {
+            return POSTGRESQL;
+        }
+        if ("H2".equalsIgnoreCase(productName)) {
+            return H2;
+        }
+        return OTHER;
+    }
+}
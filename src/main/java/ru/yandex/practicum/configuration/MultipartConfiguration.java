@@ -1,7 +1,10 @@
 package ru.yandex.practicum.configuration;
 
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 
@@ -11,4 +14,18 @@ public class MultipartConfiguration {
     public MultipartResolver multipartResolver() {
         return new StandardServletMultipartResolver();
     }
+
+    // Части больше порога пишутся контейнером во временный файл, а не держатся в памяти
+    @Bean
+    public MultipartConfigElement multipartConfigElement(
+            @Value("${spring.servlet.multipart.location:}") String location,
+            @Value("${spring.servlet.multipart.max-file-size:64MB}") DataSize maxFileSize,
+            @Value("${spring.servlet.multipart.max-request-size:65MB}") DataSize maxRequestSize,
+            @Value("${spring.servlet.multipart.file-size-threshold:256KB}") DataSize fileSizeThreshold
+    ) {
+        return new MultipartConfigElement(location,
+                maxFileSize.toBytes(),
+                maxRequestSize.toBytes(),
+                Math.toIntExact(fileSizeThreshold.toBytes()));
+    }
 }
@@ -1,30 +1,49 @@
 package ru.yandex.practicum.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.model.dto.ImportReport;
 import ru.yandex.practicum.model.dto.PostListDto;
 import ru.yandex.practicum.service.CommentService;
 import ru.yandex.practicum.service.ImageService;
+import ru.yandex.practicum.service.PostExportService;
+import ru.yandex.practicum.service.PostImportService;
 import ru.yandex.practicum.service.PostService;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
 @RequestMapping("/api/posts")
 @AllArgsConstructor
 public class PostController {
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     private final PostService postService;
     private final ImageService imageService;
     private final CommentService commentService;
+    private final PostImportService postImportService;
+    private final PostExportService postExportService;
 
     @PostMapping
     @ResponseBody
@@ -33,15 +52,37 @@ public class PostController {
         return postService.addPost(post);
     }
 
+    // Тело читается потоком, без загрузки файла в память
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseBody
+    @CrossOrigin("http://localhost")
+    public ImportReport importPosts(InputStream body) throws IOException {
+        return postImportService.importPosts(body);
+    }
+
     @GetMapping
     @ResponseBody
     @CrossOrigin("http://localhost")
     public PostListDto getAllPosts(@RequestParam(name = "search") String search,
-                                   @RequestParam(name = "pageNumber") int pageNumber,
-                                   @RequestParam(name = "pageSize") int pageSize) {
+                                   @RequestParam(name = "pageNumber", defaultValue = "1") int pageNumber,
+                                   @RequestParam(name = "pageSize") int pageSize,
+                                   @RequestParam(name = "cursor", required = false) String cursor) {
+        if (cursor != null) {
+            return postService.getPosts(search, pageSize, cursor);
+        }
         return postService.getPosts(search, pageSize, pageNumber);
     }
 
+    // Весь блог в NDJSON в порядке id; ответ пишется по мере чтения из базы
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @CrossOrigin("http://localhost")
+    public ResponseEntity<StreamingResponseBody> exportPosts(
+            @RequestParam(name = "images", defaultValue = "false") boolean images) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(output -> postExportService.exportPosts(images, output));
+    }
+
     @GetMapping(value = "/{postId}")
     @ResponseBody
     @CrossOrigin("http://localhost")
@@ -120,9 +161,60 @@ public class PostController {
 
     @GetMapping(value = "/{postId}/image")
     @CrossOrigin("http://localhost")
-    public ResponseEntity<Resource> getPostImage(@PathVariable(name = "postId") Long postId) {
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(imageService.getImageForPost(postId));
+    public ResponseEntity<Resource> getPostImage(@PathVariable(name = "postId") Long postId,
+                                                 @RequestParam(name = "size", required = false) Integer size,
+                                                 HttpServletRequest request,
+                                                 WebRequest webRequest) throws IOException {
+        Optional<PostImage> storedImage = imageService.getImageInfo(postId, size);
+        if (storedImage.isEmpty()) {
+            //may be replaced by an upload at any moment, so always revalidated
+            return imageResponse(ResponseEntity.ok()
+                            .cacheControl(CacheControl.noCache())
+                            .contentType(MediaType.IMAGE_JPEG),
+                    imageService.getPlaceholder(), request);
+        }
+
+        PostImage image = storedImage.get();
+        String eTag = image.getContentHash() == null ? null : "\"" + image.getContentHash() + "\"";
+        long lastModified = image.getUpdatedAt() == null ? -1 : image.getUpdatedAt().toInstant().toEpochMilli();
+        //sets ETag and Last-Modified, and answers If-None-Match / If-Modified-Since with 304 before the content is opened
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return null;
+        }
+
+        //the variant gets its own ETag, so revalidation picks it up as soon as it is generated
+        CacheControl cacheControl = imageService.isVariantPending(image, size)
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(imageService.getImageMaxAge()).cachePublic();
+        return imageResponse(ResponseEntity.ok()
+                        .cacheControl(cacheControl)
+                        .contentType(toMediaType(image.getContentType())),
+                imageService.getImageContent(image), request);
+    }
+
+    private ResponseEntity<Resource> imageResponse(ResponseEntity.BodyBuilder response, Resource image,
+                                                   HttpServletRequest request) throws IOException {
+        //a file is handed to Tomcat, which sends it with FileChannel.transferTo (sendfile), bypassing the heap
+        if (image.isFile() && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            File file = image.getFile();
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, 0L);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, file.length());
+            return response.contentLength(file.length()).build();
+        }
+
+        return response.body(image);
+    }
+
+    private static MediaType toMediaType(String contentType) {
+        if (contentType == null) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
+
+        try {
+            return MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_OCTET_STREAM;
+        }
     }
 }
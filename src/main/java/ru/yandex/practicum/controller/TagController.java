@@ -0,0 +1,20 @@
+package ru.yandex.practicum.controller;
+
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.model.dto.TagListDto;
+import ru.yandex.practicum.service.TagRanking;
+
+@RestController
+@RequestMapping("/api/tags")
+@AllArgsConstructor
+public class TagController {
+    private final TagRanking tagRanking;
+
+    @GetMapping
+    @ResponseBody
+    @CrossOrigin("http://localhost")
+    public TagListDto getTags(@RequestParam(name = "limit", defaultValue = "20") int limit) {
+        return tagRanking.getTopTags(limit);
+    }
+}
@@ -5,6 +5,9 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.InputStream;
+import java.time.OffsetDateTime;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -14,5 +17,11 @@ public class PostImage {
     private String fileName;
     private String contentType;
     private Long size;
-    private byte[] data;
+    private String storageKey;
+    private String contentHash;
+    private OffsetDateTime updatedAt;
+    //null for the original upload, the target width for a resized variant
+    private Integer width;
+    //read once while saving, not loaded on reads
+    private InputStream data;
 }
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class TagStats {
+    private String name;
+    private Integer postCount;
+    // Затухающее число добавлений тега к постам на момент построения списка
+    private Double trend;
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.model.Comment;
+
+import java.util.List;
+
+// Строка NDJSON при выгрузке блога, совместима с форматом импорта
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportedPost {
+    private Long id;
+    private String title;
+    private String text;
+    private List<String> tags;
+    private Short likesCount;
+    private Short commentsCount;
+    private List<Comment> comments;
+    // Только описание изображения, если выгрузка запрошена с images=true и у поста есть изображение
+    private Image image;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Image {
+        private String fileName;
+        private String contentType;
+        private Long size;
+        private String contentHash;
+    }
+}
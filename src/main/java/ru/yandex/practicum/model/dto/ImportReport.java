@@ -0,0 +1,19 @@
+package ru.yandex.practicum.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportReport {
+    private Long posts;
+    private Long tags;
+    private Long comments;
+    // Всего вставленных строк: посты, связи с тегами и комментарии
+    private Long rows;
+    private Integer chunks;
+    private Long millis;
+    private Long rowsPerSecond;
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.model.Comment;
+
+import java.util.List;
+
+// Строка NDJSON при массовом импорте: пост вместе с тегами и комментариями, id назначаются при импорте.
+// Лишние поля (id, commentsCount, image из выгрузки) пропускаются
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+@NoArgsConstructor
+public class ImportedPost {
+    private String title;
+    private String text;
+    private List<String> tags;
+    private Short likesCount;
+    private List<Comment> comments;
+}
@@ -13,4 +13,5 @@ public class PostListDto {
     private Boolean hasPrev;
     private Boolean hasNext;
     private Integer lastPage;
+    private String nextCursor;
 }
@@ -0,0 +1,18 @@
+package ru.yandex.practicum.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.yandex.practicum.model.TagStats;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagListDto {
+    // По числу постов с тегом
+    private List<TagStats> popular;
+    // По затухающему числу добавлений тега
+    private List<TagStats> trending;
+}
@@ -0,0 +1,140 @@
+package ru.yandex.practicum.repository.implementations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.configuration.DatabaseDialect;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.repository.interfaces.ImageRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+import ru.yandex.practicum.utils.Utility;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Содержимое изображений хранится в файлах, в post_image — только описание и имя файла.
+// Имя — SHA-256 содержимого, поэтому одинаковые изображения хранятся один раз
+@Repository("FileSystemImageRepository")
+public class FileSystemImageRepository implements ImageRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final Path root;
+
+    public FileSystemImageRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                                     DatabaseDialect dialect,
+                                     @Value("${blog.images.storage-dir:images}") Path root) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.root = root.toAbsolutePath();
+    }
+
+    @Override
+    public void savePostImage(PostImage image) {
+        String storageKey = store(image.getData());
+
+        //language=SQL
+        String sqlQuery = dialect == DatabaseDialect.H2
+                ? """
+                MERGE INTO post_image(POST_ID, FILE_NAME, CONTENT_TYPE, FILE_SIZE, FILE_DATA, STORAGE_KEY,
+                                      CONTENT_HASH, UPDATED_AT)
+                KEY (POST_ID)
+                VALUES (:id, :fn, :ct, :fs, NULL, :key, :key, CURRENT_TIMESTAMP)
+                """
+                : """
+                INSERT INTO post_image(POST_ID, FILE_NAME, CONTENT_TYPE, FILE_SIZE, FILE_DATA, STORAGE_KEY,
+                                       CONTENT_HASH, UPDATED_AT)
+                VALUES (:id, :fn, :ct, :fs, NULL, :key, :key, CURRENT_TIMESTAMP)
+                ON CONFLICT(POST_ID)
+                DO UPDATE SET
+                    FILE_NAME = excluded.FILE_NAME,
+                    CONTENT_TYPE = excluded.CONTENT_TYPE,
+                    FILE_SIZE = excluded.FILE_SIZE,
+                    FILE_DATA = excluded.FILE_DATA,
+                    STORAGE_KEY = excluded.STORAGE_KEY,
+                    CONTENT_HASH = excluded.CONTENT_HASH,
+                    UPDATED_AT = excluded.UPDATED_AT;
+                """;
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", image.getPostId());
+        params.put("fn", image.getFileName());
+        params.put("ct", image.getContentType());
+        params.put("fs", image.getSize());
+        params.put("key", storageKey);
+
+        jdbcTemplate.update(sqlQuery, params);
+    }
+
+    @Override
+    public Optional<PostImage> getPostImageByPostId(Long postId) {
+        //language=SQL
+        String sqlQuery = """
+                SELECT POST_ID as postId,
+                       FILE_NAME as fileName,
+                       CONTENT_TYPE as contentType,
+                       FILE_SIZE as size,
+                       CONTENT_HASH as contentHash,
+                       UPDATED_AT as updatedAt,
+                       STORAGE_KEY as storageKey
+                FROM post_image
+                WHERE POST_ID = :id
+                  AND STORAGE_KEY IS NOT NULL
+                LIMIT 1
+                """;
+
+        try {
+            return Optional.of(jdbcTemplate.queryForObject(sqlQuery, Map.of("id", postId),
+                    RowMappers.POST_IMAGE))
+                    .filter(image -> Files.isRegularFile(pathOf(image.getStorageKey())));
+        } catch (DataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    // Файловый ресурс: контроллер может отдать его через sendfile, минуя память приложения
+    @Override
+    public Resource getPostImageContent(PostImage image) {
+        return new FileSystemResource(pathOf(image.getStorageKey()));
+    }
+
+    private String store(InputStream data) {
+        try {
+            Files.createDirectories(root);
+            //written next to the target, so the final move stays on one file system
+            Path upload = Files.createTempFile(root, "upload-", ".tmp");
+            try {
+                MessageDigest digest = Utility.sha256();
+                Files.copy(new DigestInputStream(data, digest), upload, StandardCopyOption.REPLACE_EXISTING);
+
+                String storageKey = Utility.toHex(digest);
+                Path target = pathOf(storageKey);
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.move(upload, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                return storageKey;
+            } finally {
+                Files.deleteIfExists(upload);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //two-level fan-out keeps directories small
+    private Path pathOf(String storageKey) {
+        return root.resolve(storageKey.substring(0, 2)).resolve(storageKey);
+    }
+}
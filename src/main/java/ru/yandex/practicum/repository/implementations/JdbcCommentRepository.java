@@ -2,11 +2,12 @@ package ru.yandex.practicum.repository.implementations;
 
 import lombok.AllArgsConstructor;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.repository.interfaces.CommentRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
 
 import java.util.List;
 import java.util.Map;
@@ -18,9 +19,12 @@ public class JdbcCommentRepository implements CommentRepository {
     private final NamedParameterJdbcTemplate jdbcTemplate;
 
     @Override
+    @Transactional
     public Comment createComment(Comment comment) {
         //language=SQL
         String sqlQuery = "INSERT INTO comments (id, post_id, text) VALUES (:id, :postId, :text)";
+        //language=SQL
+        String countQuery = "UPDATE posts SET comments_count = comments_count + 1 WHERE id = :postId";
 
         Map<String, Object> params = Map.of(
                 "id", comment.getId(),
@@ -29,10 +33,27 @@ public class JdbcCommentRepository implements CommentRepository {
         );
 
         jdbcTemplate.update(sqlQuery, params);
+        jdbcTemplate.update(countQuery, params);
 
         return comment;
     }
 
+    @Override
+    public void createComments(List<Comment> comments) {
+        //language=SQL
+        String sqlQuery = "INSERT INTO comments (id, post_id, text) VALUES (?, ?, ?)";
+
+        if (comments.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(sqlQuery, comments, comments.size(), (ps, comment) -> {
+            ps.setLong(1, comment.getId());
+            ps.setLong(2, comment.getPostId());
+            ps.setString(3, comment.getText());
+        });
+    }
+
     @Override
     public Comment updateComment(Comment comment) {
         //language=SQL
@@ -50,13 +71,19 @@ public class JdbcCommentRepository implements CommentRepository {
     }
 
     @Override
+    @Transactional
     public void deleteComment(Long postId, Long commentId) {
         //language=SQL
         String sqlQuery = "DELETE FROM comments WHERE post_id = :postId AND id = :commentId";
+        //language=SQL
+        String countQuery = "UPDATE posts SET comments_count = comments_count - :deleted WHERE id = :postId";
 
         Map<String, Object> params = Map.of("postId", postId, "commentId", commentId);
 
-        jdbcTemplate.update(sqlQuery, params);
+        int deleted = jdbcTemplate.update(sqlQuery, params);
+        if (deleted > 0) {
+            jdbcTemplate.update(countQuery, Map.of("postId", postId, "deleted", deleted));
+        }
     }
 
     @Override
@@ -73,7 +100,7 @@ public class JdbcCommentRepository implements CommentRepository {
         Map<String, Object> params = Map.of("postId", postId, "commentId", commentId);
 
         try {
-            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, params, new BeanPropertyRowMapper<>(Comment.class)));
+            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, params, RowMappers.COMMENT));
         } catch (DataAccessException e) {
             return Optional.empty();
         }
@@ -84,13 +111,18 @@ public class JdbcCommentRepository implements CommentRepository {
         //language=SQL
         String sqlQuery = "SELECT ID,TEXT,POST_ID as postId FROM comments WHERE post_id = :postId";
 
-        return jdbcTemplate.query(sqlQuery, Map.of("postId", postId), new BeanPropertyRowMapper<>(Comment.class));
+        return jdbcTemplate.query(sqlQuery, Map.of("postId", postId), RowMappers.COMMENT);
     }
 
     @Override
-    public Short getPostLikeCount(Long id) {
+    public int reconcileCommentsCounts() {
         //language=SQL
-        String sqlQuery = "SELECT COUNT(*) FROM comments WHERE id = :id";
-        return jdbcTemplate.queryForObject(sqlQuery, Map.of("id", id), Short.class);
+        String sqlQuery = """
+                UPDATE posts
+                SET comments_count = (SELECT count(*) FROM comments c WHERE c.post_id = posts.id)
+                WHERE comments_count <> (SELECT count(*) FROM comments c WHERE c.post_id = posts.id)
+                """;
+
+        return jdbcTemplate.getJdbcOperations().update(sqlQuery);
     }
 }
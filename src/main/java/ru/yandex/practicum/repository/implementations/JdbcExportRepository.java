@@ -0,0 +1,60 @@
+package ru.yandex.practicum.repository.implementations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.model.dto.ExportedPost;
+import ru.yandex.practicum.repository.interfaces.ExportRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+
+import javax.sql.DataSource;
+import java.util.function.Consumer;
+
+@Repository("JdbcExportRepository")
+public class JdbcExportRepository implements ExportRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcExportRepository(DataSource dataSource,
+                                @Value("${blog.export.fetch-size:500}") int fetchSize) {
+        //PostgreSQL reads through a server-side cursor by fetchSize rows, but only inside a transaction
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    @Override
+    public void forEachPost(boolean withImages, Consumer<ExportedPost> action) {
+        //one pass over posts: tags and comments are aggregated per row, no query per post
+        //language=SQL
+        String sqlQuery = """
+                SELECT p.id,
+                       p.title,
+                       p.text,
+                       p.likes_count,
+                       p.comments_count,
+                       (SELECT array_agg(t.name)
+                        FROM post_tag_links l
+                        JOIN tags t ON t.id = l.tag_id
+                        WHERE l.post_id = p.id) AS tags,
+                       (SELECT array_agg(c.id ORDER BY c.id) FROM comments c WHERE c.post_id = p.id) AS comment_ids,
+                       (SELECT array_agg(c.text ORDER BY c.id) FROM comments c WHERE c.post_id = p.id) AS comment_texts,
+                """ + (withImages ? """
+                       i.file_name,
+                       i.content_type,
+                       i.file_size,
+                       i.content_hash
+                FROM posts p
+                LEFT JOIN post_image i ON i.post_id = p.id
+                ORDER BY p.id
+                """ : """
+                       NULL AS file_name,
+                       NULL AS content_type,
+                       NULL AS file_size,
+                       NULL AS content_hash
+                FROM posts p
+                ORDER BY p.id
+                """);
+
+        jdbcTemplate.query(sqlQuery, (RowCallbackHandler) rs -> action.accept(RowMappers.EXPORTED_POST.mapRow(rs, rs.getRow())));
+    }
+}
@@ -1,44 +1,85 @@
 package ru.yandex.practicum.repository.implementations;
 
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.support.SqlBinaryValue;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.configuration.DatabaseDialect;
 import ru.yandex.practicum.model.PostImage;
 import ru.yandex.practicum.repository.interfaces.ImageRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+import ru.yandex.practicum.utils.Utility;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
 @Repository("JdbcImageRepository")
-@AllArgsConstructor
 public class JdbcImageRepository implements ImageRepository {
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final int chunkSize;
+
+    public JdbcImageRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                               DatabaseDialect dialect,
+                               @Value("${blog.images.read-chunk-size:64KB}") DataSize chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.chunkSize = Math.toIntExact(chunkSize.toBytes());
+    }
 
     @Override
+    @Transactional
     public void savePostImage(PostImage image) {
+        //the hash is known only once the driver has read the whole stream
+        MessageDigest digest = Utility.sha256();
+
         //language=SQL
-        String sqlQuery = """
-                INSERT INTO post_image(POST_ID, FILE_NAME, CONTENT_TYPE, FILE_SIZE, FILE_DATA)
-                VALUES (:id, :fn, :ct, :fs, :fd)
+        String sqlQuery = dialect == DatabaseDialect.H2
+                ? """
+                MERGE INTO post_image(POST_ID, FILE_NAME, CONTENT_TYPE, FILE_SIZE, FILE_DATA, STORAGE_KEY,
+                                      CONTENT_HASH, UPDATED_AT)
+                KEY (POST_ID)
+                VALUES (:id, :fn, :ct, :fs, :fd, NULL, NULL, CURRENT_TIMESTAMP)
+                """
+                : """
+                INSERT INTO post_image(POST_ID, FILE_NAME, CONTENT_TYPE, FILE_SIZE, FILE_DATA, STORAGE_KEY,
+                                       CONTENT_HASH, UPDATED_AT)
+                VALUES (:id, :fn, :ct, :fs, :fd, NULL, NULL, CURRENT_TIMESTAMP)
                 ON CONFLICT(POST_ID)
                 DO UPDATE SET
                     FILE_NAME = excluded.FILE_NAME,
                     CONTENT_TYPE = excluded.CONTENT_TYPE,
                     FILE_SIZE = excluded.FILE_SIZE,
-                    FILE_DATA = excluded.FILE_DATA;
+                    FILE_DATA = excluded.FILE_DATA,
+                    STORAGE_KEY = excluded.STORAGE_KEY,
+                    CONTENT_HASH = excluded.CONTENT_HASH,
+                    UPDATED_AT = excluded.UPDATED_AT;
                 """;
 
-        Map<String, Object> params = Map.of(
-                "id", image.getPostId(),
-                "fn", image.getFileName(),
-                "ct", image.getContentType(),
-                "fs", image.getSize(),
-                "fd", image.getData()
-        );
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", image.getPostId());
+        params.put("fn", image.getFileName());
+        params.put("ct", image.getContentType());
+        params.put("fs", image.getSize());
+        //bound with setBinaryStream: the driver copies the upload to the socket without a heap copy
+        params.put("fd", new SqlBinaryValue(new DigestInputStream(image.getData(), digest), image.getSize()));
 
         jdbcTemplate.update(sqlQuery, params);
+
+        //language=SQL
+        String hashQuery = "UPDATE post_image SET CONTENT_HASH = :hash WHERE POST_ID = :id";
+        jdbcTemplate.update(hashQuery, Map.of("id", image.getPostId(), "hash", Utility.toHex(digest)));
     }
 
     @Override
@@ -49,17 +90,121 @@ public class JdbcImageRepository implements ImageRepository {
                        FILE_NAME as fileName,
                        CONTENT_TYPE as contentType,
                        FILE_SIZE as size,
-                       FILE_DATA as data
+                       CONTENT_HASH as contentHash,
+                       UPDATED_AT as updatedAt,
+                       STORAGE_KEY as storageKey
                 FROM post_image
                 WHERE POST_ID = :id
+                  AND STORAGE_KEY IS NULL
                 LIMIT 1
                 """;
 
         try {
             return Optional.of(jdbcTemplate.queryForObject(sqlQuery, Map.of("id", postId),
-                    new BeanPropertyRowMapper<>(PostImage.class)));
+                    RowMappers.POST_IMAGE));
         } catch (DataAccessException e) {
             return Optional.empty();
         }
     }
+
+    @Override
+    public Resource getPostImageContent(PostImage image) {
+        return new InputStreamResource(() -> new ChunkedImageInputStream(image)) {
+            //known in advance, so the response gets Content-Length instead of chunked encoding
+            @Override
+            public long contentLength() {
+                return image.getSize();
+            }
+        };
+    }
+
+    private byte[] readChunk(PostImage image, long offset, int length) {
+        //a replaced image has another hash: its bytes must not be mixed into the old one's response.
+        //IS NOT DISTINCT FROM matches rows saved before content_hash was introduced
+        //language=SQL
+        String sqlQuery = """
+                SELECT SUBSTRING(FILE_DATA FROM :from FOR :length)
+                FROM post_image
+                WHERE POST_ID = :id
+                  AND CONTENT_HASH IS NOT DISTINCT FROM :hash
+                """;
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", image.getPostId());
+        params.put("hash", image.getContentHash());
+        //positions in SUBSTRING start from 1. PostgreSQL has only substring(bytea, integer, integer):
+        //a Long would be bound as int8 and the function not found; bytea is at most 1GB anyway
+        params.put("from", Math.toIntExact(offset + 1));
+        params.put("length", length);
+        return jdbcTemplate.queryForObject(sqlQuery, params, byte[].class);
+    }
+
+    // Каждая часть читается отдельным коротким запросом: соединение не удерживается,
+    // пока клиент получает ответ, а в памяти находится не больше одной части
+    private class ChunkedImageInputStream extends InputStream {
+        private final PostImage image;
+        private final long size;
+        private long offset;
+        private byte[] chunk = new byte[0];
+        private int position;
+
+        private ChunkedImageInputStream(PostImage image) {
+            this.image = image;
+            this.size = image.getSize();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+
+            int count = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, buffer, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return chunk.length - position;
+        }
+
+        private boolean fill() throws IOException {
+            if (position < chunk.length) {
+                return true;
+            }
+            if (offset >= size) {
+                return false;
+            }
+
+            int length = (int) Math.min(chunkSize, size - offset);
+            byte[] next;
+            try {
+                next = readChunk(image, offset, length);
+            } catch (EmptyResultDataAccessException e) {
+                //Content-Length is already sent: a silently truncated body would look like a whole image
+                throw new IOException("Image of post " + image.getPostId() + " was replaced or deleted while being read", e);
+            }
+            if (next == null || next.length != length) {
+                throw new IOException("Image of post " + image.getPostId() + " is shorter than " + size + " bytes");
+            }
+
+            chunk = next;
+            position = 0;
+            offset += next.length;
+            return true;
+        }
+    }
 }
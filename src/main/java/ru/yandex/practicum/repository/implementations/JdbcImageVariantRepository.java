@@ -0,0 +1,93 @@
+package ru.yandex.practicum.repository.implementations;
+
+import lombok.AllArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.repository.interfaces.ImageVariantRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Копии небольшие (не шире нескольких сотен пикселей), поэтому хранятся в БД при любом хранилище оригиналов
+@Repository("JdbcImageVariantRepository")
+@AllArgsConstructor
+public class JdbcImageVariantRepository implements ImageVariantRepository {
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public void saveVariant(PostImage variant, byte[] data, String sourceHash) {
+        //language=SQL
+        String sqlQuery = """
+                INSERT INTO post_image_variant(POST_ID, WIDTH, CONTENT_TYPE, FILE_SIZE, FILE_DATA,
+                                               CONTENT_HASH, SOURCE_HASH, UPDATED_AT)
+                SELECT :id, :width, :ct, :fs, :fd, :hash, :source, CURRENT_TIMESTAMP
+                FROM post_image i
+                WHERE i.POST_ID = :id
+                  AND i.CONTENT_HASH = :source
+                  AND NOT EXISTS (SELECT 1 FROM post_image_variant v WHERE v.POST_ID = :id AND v.WIDTH = :width)
+                """;
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", variant.getPostId());
+        params.put("width", variant.getWidth());
+        params.put("ct", variant.getContentType());
+        params.put("fs", variant.getSize());
+        params.put("fd", data);
+        params.put("hash", variant.getContentHash());
+        params.put("source", sourceHash);
+
+        try {
+            jdbcTemplate.update(sqlQuery, params);
+        } catch (DuplicateKeyException e) {
+            //the same original was uploaded twice and both generations finished at once
+        }
+    }
+
+    @Override
+    public Optional<PostImage> getVariant(Long postId, int width) {
+        //language=SQL
+        String sqlQuery = """
+                SELECT POST_ID as postId,
+                       WIDTH as width,
+                       CONTENT_TYPE as contentType,
+                       FILE_SIZE as size,
+                       CONTENT_HASH as contentHash,
+                       UPDATED_AT as updatedAt
+                FROM post_image_variant
+                WHERE POST_ID = :id
+                  AND WIDTH = :width
+                """;
+
+        try {
+            return Optional.of(jdbcTemplate.queryForObject(sqlQuery, Map.of("id", postId, "width", width),
+                    RowMappers.POST_IMAGE_VARIANT));
+        } catch (DataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<byte[]> getVariantData(Long postId, int width) {
+        //language=SQL
+        String sqlQuery = "SELECT FILE_DATA FROM post_image_variant WHERE POST_ID = :id AND WIDTH = :width";
+
+        try {
+            return Optional.ofNullable(jdbcTemplate.queryForObject(sqlQuery, Map.of("id", postId, "width", width),
+                    byte[].class));
+        } catch (DataAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void deleteVariants(Long postId) {
+        //language=SQL
+        String sqlQuery = "DELETE FROM post_image_variant WHERE POST_ID = :id";
+        jdbcTemplate.update(sqlQuery, Map.of("id", postId));
+    }
+}
@@ -1,72 +1,138 @@
 package ru.yandex.practicum.repository.implementations;
 
-import lombok.AllArgsConstructor;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.configuration.DatabaseDialect;
 import ru.yandex.practicum.model.Post;
 import ru.yandex.practicum.repository.interfaces.PostRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+import ru.yandex.practicum.repository.sql.FeedQuery;
+import ru.yandex.practicum.repository.sql.FeedQueryShape;
+import ru.yandex.practicum.repository.sql.SearchTerms;
+import ru.yandex.practicum.repository.search.InMemoryPostSearchIndex;
+import ru.yandex.practicum.repository.search.SearchMode;
+import ru.yandex.practicum.utils.Utility;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Repository("JdbcPostRepository")
-@AllArgsConstructor
 public class JdbcPostRepository implements PostRepository {
+    //rows per UPDATE ... FROM (VALUES ...) statement
+    private static final int LIKES_BATCH_SIZE = 500;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final SearchMode searchMode;
+    private final InMemoryPostSearchIndex searchIndex;
+    private final Map<FeedQueryShape, FeedQuery> feedQueries = new ConcurrentHashMap<>();
+    private final Counter sqlCacheHits;
+    private final Counter sqlCacheMisses;
+
+    public JdbcPostRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                              DatabaseDialect dialect,
+                              @Value("${blog.search.mode:like}") SearchMode searchMode,
+                              ObjectProvider<InMemoryPostSearchIndex> searchIndex,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.searchMode = searchMode;
+        this.searchIndex = searchIndex.getIfAvailable();
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.sqlCacheHits = registry.counter("blog.posts.sql-cache", "result", "hit");
+        this.sqlCacheMisses = registry.counter("blog.posts.sql-cache", "result", "miss");
+    }
 
     @Override
-    public List<Post> getPosts(String searchString, Integer pageSize, Integer currentPage) {
+    public List<Post> getPosts(String searchString, Integer limit, Integer offset) {
+        SearchTerms terms = SearchTerms.parse(searchString);
         Map<String, Object> params = new HashMap<>();
-        StringBuilder sql = new StringBuilder();
-        //language=SQL
-        sql.append("""
-                SELECT ID,
-                       TITLE,
-                       CASE WHEN LENGTH(text) > 128
-                               THEN SUBSTRING(text FROM 1 FOR 128) || '...'
-                               ELSE text
-                           END AS text,
-                        likes_count as likesCount
-                FROM posts
-                """);
-
-        sql.append(buildSearchCause(searchString, params));
+        bindSearch(terms, params);
+        params.put("pageSize", limit);
+        if (offset > 0) {
+            params.put("os", offset);
+        }
 
-        sql.append(" ORDER BY id DESC LIMIT :pageSize");
+        FeedQuery query = feedQuery(new FeedQueryShape(FeedQueryShape.Kind.PAGE, terms.hasWords(), terms.hasHashtags(), offset > 0));
+        return query.query(jdbcTemplate, params, RowMappers.POST);
+    }
 
+    @Override
+    public List<Post> getPostsAfter(String searchString, Integer pageSize, Long afterId) {
+        SearchTerms terms = SearchTerms.parse(searchString);
+        Map<String, Object> params = new HashMap<>();
+        bindSearch(terms, params);
         params.put("pageSize", pageSize);
-
-        if (currentPage > 1) {
-            sql.append(" OFFSET :os");
-            params.put("os", (currentPage - 1) * pageSize);
+        if (afterId != null) {
+            params.put("cursor", afterId);
         }
 
-
-        return jdbcTemplate.query(sql.toString(), params, new BeanPropertyRowMapper<>(Post.class));
+        FeedQuery query = feedQuery(new FeedQueryShape(FeedQueryShape.Kind.AFTER, terms.hasWords(), terms.hasHashtags(), afterId != null));
+        return query.query(jdbcTemplate, params, RowMappers.POST);
     }
 
     @Override
     public Integer getPostsCount(String searchString) {
-        //language=SQL
-        String sqlQuery = "SELECT count(*) FROM posts";
-
+        SearchTerms terms = SearchTerms.parse(searchString);
         Map<String, Object> params = new HashMap<>();
-        params.put("searchString", searchString);
+        bindSearch(terms, params);
 
-        String searchCause = buildSearchCause(searchString, params);
-        sqlQuery += searchCause;
+        FeedQuery query = feedQuery(new FeedQueryShape(FeedQueryShape.Kind.COUNT, terms.hasWords(), terms.hasHashtags(), false));
+        return query.query(jdbcTemplate, params, new SingleColumnRowMapper<>(Integer.class)).getFirst();
+    }
+
+    @Override
+    public boolean isOrderedById(String searchString) {
+        return !rankedByRelevance(SearchTerms.parse(searchString).hasWords());
+    }
 
-        return jdbcTemplate.queryForObject(sqlQuery, params, Integer.class);
+    @Override
+    public Optional<Integer> getApproximatePostsCount() {
+        //language=SQL
+        String sqlQuery = "SELECT n_live_tup FROM pg_stat_user_tables WHERE relname = 'posts'";
+
+        //statistics are PostgreSQL specific, other databases fall back to the exact count
+        try {
+            return jdbcTemplate.getJdbcOperations().queryForList(sqlQuery, Long.class).stream()
+                    .filter(Objects::nonNull)
+                    .filter(count -> count > 0)
+                    .map(Long::intValue)
+                    .findFirst();
+        } catch (DataAccessException e) {
+            return Optional.empty();
+        }
     }
 
     @Override
     public Optional<Post> getPost(Long id) {
+        //one round trip: the post with its tags, comments_count is maintained by JdbcCommentRepository
         //language=SQL
-        String sqlQuery = "select * from posts where id = :id";
+        String sqlQuery = """
+                SELECT p.id,
+                       p.title,
+                       p.text,
+                       p.likes_count,
+                       p.comments_count,
+                       (SELECT array_agg(t.name)
+                        FROM post_tag_links l
+                        JOIN tags t ON t.id = l.tag_id
+                        WHERE l.post_id = p.id) AS tags
+                FROM posts p
+                WHERE p.id = :id
+                """;
 
-        return Optional.ofNullable(
-                jdbcTemplate.queryForObject(sqlQuery, Map.of("id", id), new BeanPropertyRowMapper<>(Post.class)));
+        return jdbcTemplate.query(sqlQuery, Map.of("id", id), RowMappers.POST_WITH_TAGS).stream()
+                .findFirst();
     }
 
     @Override
@@ -85,10 +151,33 @@ public class JdbcPostRepository implements PostRepository {
         );
 
         jdbcTemplate.update(sqlQuery, params);
+        indexAfterCommit(post);
 
         return post;
     }
 
+    @Override
+    public void addPosts(List<Post> posts) {
+        //language=SQL
+        String sqlQuery = """
+                INSERT INTO posts(ID, TITLE, TEXT, LIKES_COUNT, COMMENTS_COUNT)
+                VALUES (?, ?, ?, ?, ?)
+                """;
+
+        if (posts.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(sqlQuery, posts, posts.size(), (ps, post) -> {
+            ps.setLong(1, post.getId());
+            ps.setString(2, post.getTitle());
+            ps.setString(3, post.getText());
+            ps.setInt(4, post.getLikesCount());
+            ps.setInt(5, post.getCommentsCount());
+        });
+        posts.forEach(this::indexAfterCommit);
+    }
+
     @Override
     public Post updatePost(Post post) {
         //language=SQL
@@ -103,6 +192,7 @@ public class JdbcPostRepository implements PostRepository {
                 "id", post.getId());
 
         jdbcTemplate.update(sqlQuery, params);
+        indexAfterCommit(post);
 
         return post;
     }
@@ -113,6 +203,10 @@ public class JdbcPostRepository implements PostRepository {
         //language=SQL
         String sqlQuery = "DELETE FROM posts WHERE id = :id";
         jdbcTemplate.update(sqlQuery, Map.of("id", id));
+
+        if (searchIndex != null) {
+            Utility.afterCommit(() -> searchIndex.remove(id));
+        }
     }
 
     @Override
@@ -122,47 +216,150 @@ public class JdbcPostRepository implements PostRepository {
         jdbcTemplate.update(sqlQuery, Map.of("id", id));
     }
 
-    private String buildSearchCause(String searchString, Map<String, Object> params) {
-        StringBuilder searchStringBuilder = new StringBuilder();
+    @Override
+    @Transactional
+    public void addLikesToPosts(Map<Long, Long> likesByPostId) {
+        List<Map.Entry<Long, Long>> likes = new ArrayList<>(likesByPostId.entrySet());
+        //rows are locked in id order, so concurrent flushes can't deadlock
+        likes.sort(Map.Entry.comparingByKey());
+
+        if (dialect != DatabaseDialect.POSTGRESQL) {
+            //language=SQL
+            String sqlQuery = "UPDATE posts SET likes_count = likes_count + ? WHERE id = ?";
+            jdbcTemplate.getJdbcOperations().batchUpdate(sqlQuery, likes, LIKES_BATCH_SIZE, (ps, like) -> {
+                ps.setLong(1, like.getValue());
+                ps.setLong(2, like.getKey());
+            });
+            return;
+        }
 
-        if (searchString != null && !searchString.isEmpty()) {
-            searchStringBuilder.append(" WHERE");
+        //one statement (and one WAL record per row) for the whole batch
+        for (int from = 0; from < likes.size(); from += LIKES_BATCH_SIZE) {
+            List<Map.Entry<Long, Long>> batch = likes.subList(from, Math.min(from + LIKES_BATCH_SIZE, likes.size()));
+
+            StringBuilder sql = new StringBuilder();
+            //language=SQL
+            sql.append("""
+                    UPDATE posts AS p
+                    SET likes_count = p.likes_count + v.delta
+                    FROM (VALUES
+                    """);
+            Object[] args = new Object[batch.size() * 2];
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "(?::bigint, ?::integer)" : ", (?::bigint, ?::integer)");
+                args[i * 2] = batch.get(i).getKey();
+                args[i * 2 + 1] = batch.get(i).getValue();
+            }
+            sql.append(") AS v(id, delta) WHERE p.id = v.id");
 
-            String[] words = searchString.split(" ");
-            StringBuilder wordsSearch = new StringBuilder();
-            List<String> hashtags = new ArrayList<>();
-            for (String word : words) {
-                if (word.equals(" ") || word.equals("")) {
-                    continue;
-                }
+            jdbcTemplate.getJdbcOperations().update(sql.toString(), args);
+        }
+    }
+
+    //one statement per query shape: the SQL is built and parsed once, search values are bound as arrays,
+    //so the statement text doesn't depend on the number of hashtags and stays prepared on the server
+    private FeedQuery feedQuery(FeedQueryShape shape) {
+        FeedQuery query = feedQueries.get(shape);
+        if (query != null) {
+            sqlCacheHits.increment();
+            return query;
+        }
+
+        sqlCacheMisses.increment();
+        return feedQueries.computeIfAbsent(shape, key -> FeedQuery.compile(buildFeedSql(key)));
+    }
 
-                if (word.startsWith("#")) {
-                    hashtags.add(word.substring(1));
-                } else {
-                    wordsSearch.append(" ");
-                    wordsSearch.append(word);
+    private String buildFeedSql(FeedQueryShape shape) {
+        StringBuilder sql = new StringBuilder();
+        if (shape.kind() == FeedQueryShape.Kind.COUNT) {
+            //language=SQL
+            sql.append("SELECT count(*) FROM posts");
+        } else {
+            //language=SQL
+            sql.append("""
+                    SELECT ID,
+                           TITLE,
+                           CASE WHEN LENGTH(text) > 128
+                                   THEN SUBSTRING(text FROM 1 FOR 128) || '...'
+                                   ELSE text
+                               END AS text,
+                            likes_count as likesCount,
+                            comments_count as commentsCount
+                    FROM posts
+                    """);
+        }
+
+        List<String> conditions = new ArrayList<>();
+        if (shape.words()) {
+            conditions.add(buildWordsCause());
+        }
+        if (shape.hashtags()) {
+            //tags.name unique index, then the (tag_id, post_id) primary key of post_tag_links
+            conditions.add("""
+                    id IN (SELECT l.post_id FROM post_tag_links l JOIN tags t ON t.id = l.tag_id
+                           WHERE t.name = ANY(:hashtags))""");
+        }
+        //keyset pagination: index range scan by primary key instead of skipping OFFSET rows
+        if (shape.kind() == FeedQueryShape.Kind.AFTER && shape.paged()) {
+            conditions.add("id < :cursor");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+
+        switch (shape.kind()) {
+            case PAGE -> {
+                sql.append(buildOrderBy(shape));
+                sql.append(" LIMIT :pageSize");
+                if (shape.paged()) {
+                    sql.append(" OFFSET :os");
                 }
             }
-            if (wordsSearch.length() > 0) {
-                wordsSearch.replace(0, 1, "%");
-                wordsSearch.append("%");
-
-                searchStringBuilder.append(" title LIKE :searchString");
-                params.put("searchString", wordsSearch.toString());
+            case AFTER -> sql.append(" ORDER BY id DESC LIMIT :pageSize");
+            case COUNT -> {
             }
+        }
 
-            if (wordsSearch.length() > 0 && hashtags.size() > 0) {
-                searchStringBuilder.append(" AND");
-            }
+        return sql.toString();
+    }
+
+    private String buildWordsCause() {
+        return switch (searchMode) {
+            //served by the GIN index on the generated search_vector column (schema-postgresql.sql)
+            case FULLTEXT -> "search_vector @@ plainto_tsquery('simple', :searchString)";
+            case MEMORY -> "id = ANY(:matchedIds)";
+            default -> "title LIKE :searchString";
+        };
+    }
+
+    private String buildOrderBy(FeedQueryShape shape) {
+        if (rankedByRelevance(shape.words())) {
+            return " ORDER BY ts_rank(search_vector, plainto_tsquery('simple', :searchString)) DESC, id DESC";
+        }
+        return " ORDER BY id DESC";
+    }
+
+    private boolean rankedByRelevance(boolean words) {
+        return searchMode == SearchMode.FULLTEXT && words;
+    }
 
-            if (hashtags.size() > 0) {
-                searchStringBuilder.append(" id IN (SELECT post_id FROM post_tags WHERE tag IN (:hashtags) )");
-                params.put("hashtags", hashtags);
+    private void bindSearch(SearchTerms terms, Map<String, Object> params) {
+        if (terms.hasWords()) {
+            switch (searchMode) {
+                case FULLTEXT -> params.put("searchString", terms.words());
+                //an empty array matches nothing
+                case MEMORY -> params.put("matchedIds", new SqlArrayValue("bigint", searchIndex.search(terms.words()).toArray()));
+                default -> params.put("searchString", "%" + terms.words() + "%");
             }
+        }
+        if (terms.hasHashtags()) {
+            params.put("hashtags", new SqlArrayValue("varchar", terms.hashtags().toArray()));
+        }
+    }
 
-            return searchStringBuilder.toString();
-        } else {
-            return "";
+    private void indexAfterCommit(Post post) {
+        if (searchIndex != null) {
+            Utility.afterCommit(() -> searchIndex.index(post.getId(), post.getTitle(), post.getText()));
         }
     }
 }
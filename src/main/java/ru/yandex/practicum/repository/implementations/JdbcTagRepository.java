@@ -1,68 +1,325 @@
 package ru.yandex.practicum.repository.implementations;
 
-import lombok.AllArgsConstructor;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.SqlArrayValue;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.configuration.DatabaseDialect;
+import ru.yandex.practicum.model.TagStats;
 import ru.yandex.practicum.repository.interfaces.TagRepository;
+import ru.yandex.practicum.repository.mappers.RowMappers;
+import ru.yandex.practicum.utils.Utility;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
+@Slf4j
 @Repository("JdbcTagRepository")
-@AllArgsConstructor
 public class JdbcTagRepository implements TagRepository {
+    //ln(exp(a) + exp(b)) for trend_log; exp of a large negative number is an underflow error in PostgreSQL
+    private static final String TREND_LOG_ADD = """
+            CASE WHEN trend_log IS NULL THEN CAST(:trend AS DOUBLE PRECISION)
+                 WHEN ABS(trend_log - :trend) > 40 THEN GREATEST(trend_log, :trend)
+                 ELSE GREATEST(trend_log, :trend) + LN(1 + EXP(-ABS(trend_log - :trend)))
+            END""";
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DatabaseDialect dialect;
+    private final Duration trendHalfLife;
+
+    public JdbcTagRepository(NamedParameterJdbcTemplate jdbcTemplate,
+                             DatabaseDialect dialect,
+                             @Value("${blog.tags.trend-half-life:7d}") Duration trendHalfLife) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dialect = dialect;
+        this.trendHalfLife = trendHalfLife;
+    }
+
+    // Перенос тегов из прежней таблицы post_tags (post_id, tag) в словарь tags и post_tag_links.
+    // Выполняется один раз: таблица удаляется после переноса, а каждый шаг можно безопасно повторить
+    @PostConstruct
+    public void migrateLegacyTags() {
+        //language=SQL
+        String existsQuery = """
+                SELECT count(*) FROM information_schema.tables
+                WHERE LOWER(table_name) = 'post_tags'
+                  AND LOWER(table_schema) = LOWER(CURRENT_SCHEMA)
+                """;
+        Integer tables = jdbcTemplate.getJdbcOperations().queryForObject(existsQuery, Integer.class);
+        if (tables == null || tables == 0) {
+            return;
+        }
+
+        //language=SQL
+        String tagsQuery = """
+                INSERT INTO tags (name)
+                SELECT DISTINCT pt.tag
+                FROM post_tags pt
+                WHERE pt.tag IS NOT NULL
+                  AND NOT EXISTS (SELECT 1 FROM tags t WHERE t.name = pt.tag)
+                """;
+        //language=SQL
+        String linksQuery = """
+                INSERT INTO post_tag_links (tag_id, post_id)
+                SELECT DISTINCT t.id, pt.post_id
+                FROM post_tags pt
+                         JOIN tags t ON t.name = pt.tag
+                WHERE pt.post_id IS NOT NULL
+                  AND NOT EXISTS (SELECT 1 FROM post_tag_links l WHERE l.tag_id = t.id AND l.post_id = pt.post_id)
+                """;
+
+        jdbcTemplate.getJdbcOperations().update(tagsQuery);
+        int links = jdbcTemplate.getJdbcOperations().update(linksQuery);
+        //the tag_stats backfill in schema.sql ran before these links existed
+        reconcileTagStats();
+        jdbcTemplate.getJdbcOperations().execute("DROP TABLE post_tags");
+        log.info("Migrated {} tag links from post_tags", links);
+    }
 
     @Override
     @Transactional
     public void saveTagsForPost(Long postId, List<String> tags) {
-        //language=SQL
-        String deleteQuery = "DELETE FROM post_tags WHERE post_id = ?";
-        //language=SQL
-        String insertQuery = "INSERT INTO post_tags (post_id, tag) VALUES (?, ?)";
+        //the (tag_id, post_id) primary key does not allow the same tag twice
+        Set<String> uniqueTags = new LinkedHashSet<>(tags);
 
-        //first delete old tags, if it update case
-        jdbcTemplate.getJdbcOperations().update(deleteQuery, postId);
+        if (dialect == DatabaseDialect.POSTGRESQL) {
+            saveTagsDiff(postId, uniqueTags);
+            return;
+        }
 
-        //set new tags
-        jdbcTemplate.getJdbcOperations().batchUpdate(insertQuery, new BatchPreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps, int i) throws SQLException {
+        //only the difference is written, unchanged tags cost one select
+        List<String> currentTags = getTagsForPost(postId);
+        List<String> removed = currentTags.stream().filter(tag -> !uniqueTags.contains(tag)).toList();
+        List<String> added = uniqueTags.stream().filter(tag -> !currentTags.contains(tag)).toList();
+
+        if (!removed.isEmpty()) {
+            //language=SQL
+            String deleteQuery = """
+                    DELETE FROM post_tag_links
+                    WHERE post_id = :postId
+                      AND tag_id IN (SELECT id FROM tags WHERE name = ANY(:removed))
+                    """;
+            jdbcTemplate.update(deleteQuery, Map.of(
+                    "postId", postId,
+                    "removed", new SqlArrayValue("varchar", removed.toArray())));
+            decrementTagStats(removed);
+        }
+
+        if (!added.isEmpty()) {
+            //language=SQL
+            String insertLinkQuery = "INSERT INTO post_tag_links (tag_id, post_id) SELECT id, ? FROM tags WHERE name = ?";
+
+            saveTagNames(added);
+            jdbcTemplate.getJdbcOperations().batchUpdate(insertLinkQuery, added, added.size(), (ps, tag) -> {
                 ps.setLong(1, postId);
-                ps.setString(2, tags.get(i));
-            }
+                ps.setString(2, tag);
+            });
 
-            @Override
-            public int getBatchSize() {
-                return tags.size();
+            Map<String, Integer> addedCounts = new LinkedHashMap<>();
+            added.forEach(tag -> addedCounts.put(tag, 1));
+            incrementTagStats(addedCounts);
+        }
+    }
+
+    // Одна команда: новые имена в словарь, удаление лишних связей, вставка недостающих и счётчики tag_stats.
+    // Все части CTE видят один снимок, поэтому id только что добавленных тегов берутся из RETURNING
+    private void saveTagsDiff(Long postId, Set<String> tags) {
+        //language=SQL
+        String sqlQuery = """
+                WITH wanted AS (
+                    SELECT DISTINCT unnest(:tags) AS name
+                ),
+                new_tags AS (
+                    -- NOT EXISTS keeps the identity sequence from being spent on existing names.
+                    -- A name inserted by a concurrent transaction is not in this snapshot:
+                    -- the no-op DO UPDATE returns its id, DO NOTHING would return no row and lose the link
+                    INSERT INTO tags (name)
+                    SELECT w.name FROM wanted w
+                    WHERE NOT EXISTS (SELECT 1 FROM tags t WHERE t.name = w.name)
+                    ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name
+                    RETURNING id
+                ),
+                wanted_ids AS (
+                    SELECT id FROM new_tags
+                    UNION
+                    SELECT t.id FROM tags t JOIN wanted w ON w.name = t.name
+                ),
+                removed AS (
+                    DELETE FROM post_tag_links l
+                    WHERE l.post_id = :postId
+                      AND l.tag_id NOT IN (SELECT id FROM wanted_ids)
+                    RETURNING l.tag_id
+                ),
+                added AS (
+                    INSERT INTO post_tag_links (tag_id, post_id)
+                    SELECT w.id, :postId FROM wanted_ids w
+                    WHERE NOT EXISTS (SELECT 1 FROM post_tag_links l WHERE l.post_id = :postId AND l.tag_id = w.id)
+                    RETURNING tag_id
+                ),
+                counted AS (
+                    INSERT INTO tag_stats AS s (tag_id, post_count, trend_log)
+                    SELECT tag_id, 1, :trend FROM added
+                    ON CONFLICT (tag_id) DO UPDATE
+                    SET post_count = s.post_count + 1,
+                        trend_log = %s
+                    RETURNING s.tag_id
+                ),
+                uncounted AS (
+                    UPDATE tag_stats s
+                    SET post_count = s.post_count - 1
+                    FROM removed r
+                    WHERE s.tag_id = r.tag_id
+                    RETURNING s.tag_id
+                )
+                SELECT (SELECT count(*) FROM removed) + (SELECT count(*) FROM added)
+                """.formatted(TREND_LOG_ADD.replace("trend_log", "s.trend_log"));
+
+        jdbcTemplate.queryForObject(sqlQuery, Map.of(
+                "postId", postId,
+                "tags", new SqlArrayValue("varchar", tags.toArray()),
+                "trend", Utility.trendPoint(Instant.now(), trendHalfLife)), Integer.class);
+    }
+
+    @Override
+    public int saveTagsForNewPosts(Map<Long, List<String>> tagsByPostId) {
+        //language=SQL
+        String insertLinkQuery = "INSERT INTO post_tag_links (tag_id, post_id) SELECT id, ? FROM tags WHERE name = ?";
+
+        List<Map.Entry<Long, String>> links = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        tagsByPostId.forEach((postId, tags) -> {
+            for (String tag : new LinkedHashSet<>(tags)) {
+                links.add(Map.entry(postId, tag));
+                names.add(tag);
             }
         });
+        if (links.isEmpty()) {
+            return 0;
+        }
+
+        saveTagNames(new ArrayList<>(names));
+        jdbcTemplate.getJdbcOperations().batchUpdate(insertLinkQuery, links, links.size(), (ps, link) -> {
+            ps.setLong(1, link.getKey());
+            ps.setString(2, link.getValue());
+        });
+
+        Map<String, Integer> addedCounts = new LinkedHashMap<>();
+        links.forEach(link -> addedCounts.merge(link.getValue(), 1, Integer::sum));
+        incrementTagStats(addedCounts);
+
+        return links.size();
+    }
+
+    @Override
+    @Transactional
+    public void deleteTagsForPost(Long postId) {
+        //FOR UPDATE: a concurrent deletion of the same post waits and then finds no links to uncount
+        //language=SQL
+        String selectQuery = "SELECT tag_id FROM post_tag_links WHERE post_id = :postId FOR UPDATE";
+        //language=SQL
+        String deleteQuery = "DELETE FROM post_tag_links WHERE post_id = :postId";
+        //language=SQL
+        String statsQuery = "UPDATE tag_stats SET post_count = post_count - 1 WHERE tag_id = ANY(:tagIds)";
+
+        List<Integer> tagIds = jdbcTemplate.queryForList(selectQuery, Map.of("postId", postId), Integer.class);
+        if (tagIds.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.update(deleteQuery, Map.of("postId", postId));
+        jdbcTemplate.update(statsQuery, Map.of("tagIds", new SqlArrayValue("integer", tagIds.toArray())));
     }
 
+    @Override
+    public List<TagStats> getTopTagsByPostCount(int limit) {
+        //language=SQL
+        String selectQuery = """
+                SELECT t.name, s.post_count, s.trend_log
+                FROM tag_stats s
+                JOIN tags t ON t.id = s.tag_id
+                WHERE s.post_count > 0
+                ORDER BY s.post_count DESC, t.name
+                LIMIT :limit
+                """;
+        return jdbcTemplate.query(selectQuery, Map.of("limit", limit), RowMappers.TAG_STATS);
+    }
+
+    @Override
+    public List<TagStats> getTopTagsByTrend(int limit) {
+        //language=SQL
+        String selectQuery = """
+                SELECT t.name, s.post_count, s.trend_log
+                FROM tag_stats s
+                JOIN tags t ON t.id = s.tag_id
+                WHERE s.trend_log IS NOT NULL
+                  AND s.post_count > 0
+                ORDER BY s.trend_log DESC, t.name
+                LIMIT :limit
+                """;
+        return jdbcTemplate.query(selectQuery, Map.of("limit", limit), RowMappers.TAG_STATS);
+    }
+
+    @Override
+    @Transactional
+    public int reconcileTagStats() {
+        //language=SQL
+        String insertQuery = """
+                INSERT INTO tag_stats (tag_id, post_count)
+                SELECT t.id, 0 FROM tags t
+                WHERE NOT EXISTS (SELECT 1 FROM tag_stats s WHERE s.tag_id = t.id)
+                ON CONFLICT DO NOTHING
+                """;
+        //language=SQL
+        String updateQuery = """
+                UPDATE tag_stats
+                SET post_count = (SELECT count(*) FROM post_tag_links l WHERE l.tag_id = tag_stats.tag_id)
+                WHERE post_count <> (SELECT count(*) FROM post_tag_links l WHERE l.tag_id = tag_stats.tag_id)
+                """;
+
+        jdbcTemplate.getJdbcOperations().update(insertQuery);
+        return jdbcTemplate.getJdbcOperations().update(updateQuery);
+    }
 
     @Override
     public List<String> getTagsForPost(Long postId) {
         //language=SQL
-        String selectQuery = "SELECT tag FROM post_tags WHERE post_id = :postId";
+        String selectQuery = """
+                SELECT t.name
+                FROM post_tag_links l
+                JOIN tags t ON t.id = l.tag_id
+                WHERE l.post_id = :postId
+                """;
         return jdbcTemplate.queryForList(selectQuery, Map.of("postId", postId), String.class);
     }
 
     @Override
     public Map<Long, Set<String>> getTagsForMultiplePostIds(List<Long> postIds) {
         //language=SQL
-        String selectQuery = "SELECT post_id, tag FROM post_tags WHERE post_id IN (:postIds)";
+        String selectQuery = """
+                SELECT l.post_id, t.name
+                FROM post_tag_links l
+                JOIN tags t ON t.id = l.tag_id
+                WHERE l.post_id = ANY(:postIds)
+                """;
 
+        //ids as one array parameter: the same statement text for any page size
         try {
-            return jdbcTemplate.query(selectQuery, Map.of("postIds", postIds), rs -> {
+            return jdbcTemplate.query(selectQuery, Map.of("postIds", new SqlArrayValue("bigint", postIds.toArray())), rs -> {
                 Map<Long, Set<String>> result = new HashMap<>();
 
                 while (rs.next()) {
                     Long postId = rs.getLong("post_id");
-                    String tag = rs.getString("tag");
+                    String tag = rs.getString("name");
 
                     if (!result.containsKey(postId)) {
                         Set<String> tagSet = new HashSet<>();
@@ -79,4 +336,72 @@ public class JdbcTagRepository implements TagRepository {
             return Collections.emptyMap();
         }
     }
+
+    // Тег добавлен к count постам: счётчик и тренд (count событий в один момент — плюс ln(count))
+    private void incrementTagStats(Map<String, Integer> countByName) {
+        //language=SQL
+        String insertQuery = """
+                INSERT INTO tag_stats (tag_id, post_count)
+                SELECT t.id, 0 FROM tags t
+                WHERE t.name = ANY(:names)
+                  AND NOT EXISTS (SELECT 1 FROM tag_stats s WHERE s.tag_id = t.id)
+                ON CONFLICT DO NOTHING
+                """;
+        //language=SQL
+        String updateQuery = """
+                UPDATE tag_stats
+                SET post_count = post_count + :count,
+                    trend_log = %s
+                WHERE tag_id = (SELECT id FROM tags WHERE name = :name)
+                """.formatted(TREND_LOG_ADD);
+
+        if (countByName.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.update(insertQuery, Map.of("names", new SqlArrayValue("varchar", countByName.keySet().toArray())));
+
+        double trend = Utility.trendPoint(Instant.now(), trendHalfLife);
+        SqlParameterSource[] batch = countByName.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("name", entry.getKey())
+                        .addValue("count", entry.getValue())
+                        .addValue("trend", trend + Math.log(entry.getValue())))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(updateQuery, batch);
+    }
+
+    // Тег снят с постов; на тренд не влияет — он отражает, как часто тег добавляли
+    private void decrementTagStats(List<String> names) {
+        //language=SQL
+        String updateQuery = """
+                UPDATE tag_stats
+                SET post_count = post_count - 1
+                WHERE tag_id IN (SELECT id FROM tags WHERE name = ANY(:names))
+                """;
+        jdbcTemplate.update(updateQuery, Map.of("names", new SqlArrayValue("varchar", names.toArray())));
+    }
+
+    // Добавляет в словарь теги, которых там ещё нет
+    private void saveTagNames(List<String> tags) {
+        //language=SQL
+        String insertQuery = """
+                INSERT INTO tags (name)
+                SELECT ? WHERE NOT EXISTS (SELECT 1 FROM tags WHERE name = ?)
+                ON CONFLICT DO NOTHING
+                """;
+
+        jdbcTemplate.getJdbcOperations().batchUpdate(insertQuery, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, tags.get(i));
+                ps.setString(2, tags.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return tags.size();
+            }
+        });
+    }
 }
@@ -8,6 +8,9 @@ import java.util.Optional;
 public interface CommentRepository {
     Comment createComment(Comment comment);
 
+    // Пакетная вставка без обновления comments_count: счётчики уже заданы при вставке постов
+    void createComments(List<Comment> comments);
+
     Comment updateComment(Comment comment);
 
     void deleteComment(Long postId, Long commentId);
@@ -16,5 +19,5 @@ public interface CommentRepository {
 
     List<Comment> getComments(Long postId);
 
-    Short getPostLikeCount(Long id);
+    int reconcileCommentsCounts();
 }
@@ -0,0 +1,10 @@
+package ru.yandex.practicum.repository.interfaces;
+
+import ru.yandex.practicum.model.dto.ExportedPost;
+
+import java.util.function.Consumer;
+
+public interface ExportRepository {
+    // Передаёт посты по одному в порядке id, не собирая их в список
+    void forEachPost(boolean withImages, Consumer<ExportedPost> action);
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.repository.interfaces;
 
+import org.springframework.core.io.Resource;
 import ru.yandex.practicum.model.PostImage;
 
 import java.util.Optional;
@@ -7,5 +8,9 @@ import java.util.Optional;
 public interface ImageRepository {
     void savePostImage(PostImage image);
 
+    // Только описание изображения, без содержимого
     Optional<PostImage> getPostImageByPostId(Long postId);
+
+    // Содержимое не загружается в память целиком, а читается по мере отправки ответа
+    Resource getPostImageContent(PostImage image);
 }
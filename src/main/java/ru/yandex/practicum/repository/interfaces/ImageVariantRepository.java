@@ -0,0 +1,16 @@
+package ru.yandex.practicum.repository.interfaces;
+
+import ru.yandex.practicum.model.PostImage;
+
+import java.util.Optional;
+
+public interface ImageVariantRepository {
+    // Сохраняет копию, только если оригинал всё ещё имеет хеш sourceHash
+    void saveVariant(PostImage variant, byte[] data, String sourceHash);
+
+    Optional<PostImage> getVariant(Long postId, int width);
+
+    Optional<byte[]> getVariantData(Long postId, int width);
+
+    void deleteVariants(Long postId);
+}
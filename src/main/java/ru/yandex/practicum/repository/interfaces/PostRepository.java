@@ -3,20 +3,33 @@ package ru.yandex.practicum.repository.interfaces;
 import ru.yandex.practicum.model.Post;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface PostRepository {
-    List<Post> getPosts(String searchString,  Integer pageSize, Integer currentPage);
+    List<Post> getPosts(String searchString, Integer limit, Integer offset);
+
+    List<Post> getPostsAfter(String searchString, Integer pageSize, Long afterId);
 
     Integer getPostsCount(String searchString);
 
+    // false, если страница упорядочена не по id (ранжирование полнотекстового поиска): курсор к ней неприменим
+    boolean isOrderedById(String searchString);
+
+    Optional<Integer> getApproximatePostsCount();
+
     Optional<Post> getPost(Long id);
 
     Post addPost(Post post);
 
+    // Пакетная вставка новых постов вместе с готовыми счётчиками лайков и комментариев
+    void addPosts(List<Post> posts);
+
     Post updatePost(Post post);
 
     void deletePost(Long id);
 
     void addLikeToPost(Long id);
+
+    void addLikesToPosts(Map<Long, Long> likesByPostId);
 }
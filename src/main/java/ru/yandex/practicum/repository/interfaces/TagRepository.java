@@ -1,5 +1,7 @@
 package ru.yandex.practicum.repository.interfaces;
 
+import ru.yandex.practicum.model.TagStats;
+
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -7,7 +9,21 @@ import java.util.Set;
 public interface TagRepository {
     void saveTagsForPost(Long postId, List<String> tags);
 
+    // Теги новых постов, у которых ещё нет связей с тегами
+    int saveTagsForNewPosts(Map<Long, List<String>> tagsByPostId);
+
+    // Удаляет связи поста с тегами и уменьшает счётчики тегов
+    void deleteTagsForPost(Long postId);
+
     List<String> getTagsForPost(Long postId);
 
     Map<Long, Set<String>> getTagsForMultiplePostIds(List<Long> postIds);
+
+    // В TagStats.trend возвращается trend_log
+    List<TagStats> getTopTagsByPostCount(int limit);
+
+    List<TagStats> getTopTagsByTrend(int limit);
+
+    // Пересчитывает tag_stats.post_count по post_tag_links, возвращает число исправленных тегов
+    int reconcileTagStats();
 }
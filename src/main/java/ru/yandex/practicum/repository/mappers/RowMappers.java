@@ -0,0 +1,141 @@
+package ru.yandex.practicum.repository.mappers;
+
+import org.springframework.jdbc.core.RowMapper;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.model.TagStats;
+import ru.yandex.practicum.model.dto.ExportedPost;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Общие RowMapper-ы без рефлексии: столбцы читаются по номеру, поэтому порядок столбцов в SELECT
+// должен совпадать с описанным у каждого маппера
+public final class RowMappers {
+    // id, title, text, likes_count, comments_count
+    public static final RowMapper<Post> POST = (rs, rowNum) -> Post.builder()
+            .id(rs.getLong(1))
+            .title(rs.getString(2))
+            .text(rs.getString(3))
+            .likesCount(rs.getShort(4))
+            .commentsCount(rs.getShort(5))
+            .build();
+
+    // id, title, text, likes_count, comments_count, массив имён тегов
+    public static final RowMapper<Post> POST_WITH_TAGS = (rs, rowNum) -> Post.builder()
+            .id(rs.getLong(1))
+            .title(rs.getString(2))
+            .text(rs.getString(3))
+            .likesCount(rs.getShort(4))
+            .commentsCount(rs.getShort(5))
+            .tags(toList(rs.getArray(6)))
+            .build();
+
+    // id, text, post_id
+    public static final RowMapper<Comment> COMMENT = (rs, rowNum) -> Comment.builder()
+            .id(rs.getLong(1))
+            .text(rs.getString(2))
+            .postId(getLong(rs, 3))
+            .build();
+
+    // post_id, file_name, content_type, file_size, content_hash, updated_at, storage_key
+    public static final RowMapper<PostImage> POST_IMAGE = (rs, rowNum) -> PostImage.builder()
+            .postId(rs.getLong(1))
+            .fileName(rs.getString(2))
+            .contentType(rs.getString(3))
+            .size(rs.getLong(4))
+            .contentHash(rs.getString(5))
+            .updatedAt(rs.getObject(6, OffsetDateTime.class))
+            .storageKey(rs.getString(7))
+            .build();
+
+    // post_id, width, content_type, file_size, content_hash, updated_at
+    public static final RowMapper<PostImage> POST_IMAGE_VARIANT = (rs, rowNum) -> PostImage.builder()
+            .postId(rs.getLong(1))
+            .width(rs.getInt(2))
+            .contentType(rs.getString(3))
+            .size(rs.getLong(4))
+            .contentHash(rs.getString(5))
+            .updatedAt(rs.getObject(6, OffsetDateTime.class))
+            .build();
+
+    // id, title, text, likes_count, comments_count, массив имён тегов, массивы id и текстов комментариев,
+    // file_name, content_type, file_size, content_hash (NULL, если изображения нет или оно не выгружается)
+    public static final RowMapper<ExportedPost> EXPORTED_POST = (rs, rowNum) -> {
+        Long postId = rs.getLong(1);
+        List<Long> commentIds = toLongList(rs.getArray(7));
+        List<String> commentTexts = toList(rs.getArray(8));
+        List<Comment> comments = new ArrayList<>(commentIds.size());
+        for (int i = 0; i < commentIds.size(); i++) {
+            comments.add(new Comment(commentIds.get(i), commentTexts.get(i), postId));
+        }
+
+        String fileName = rs.getString(9);
+        return ExportedPost.builder()
+                .id(postId)
+                .title(rs.getString(2))
+                .text(rs.getString(3))
+                .likesCount(rs.getShort(4))
+                .commentsCount(rs.getShort(5))
+                .tags(toList(rs.getArray(6)))
+                .comments(comments)
+                .image(fileName == null ? null
+                        : new ExportedPost.Image(fileName, rs.getString(10), getLong(rs, 11), rs.getString(12)))
+                .build();
+    };
+
+    // name, post_count, trend_log; в trend — логарифм, его переводит в счётчик TagRanking
+    public static final RowMapper<TagStats> TAG_STATS = (rs, rowNum) -> TagStats.builder()
+            .name(rs.getString(1))
+            .postCount(rs.getInt(2))
+            .trend(getDouble(rs, 3))
+            .build();
+
+    private RowMappers() {
+    }
+
+    private static Long getLong(ResultSet rs, int column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, int column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static List<String> toList(Array array) throws SQLException {
+        if (array == null) {
+            return new ArrayList<>();
+        }
+
+        Object[] elements = (Object[]) array.getArray();
+        List<String> values = new ArrayList<>(elements.length);
+        for (Object value : elements) {
+            values.add((String) value);
+        }
+        array.free();
+
+        return values;
+    }
+
+    private static List<Long> toLongList(Array array) throws SQLException {
+        if (array == null) {
+            return new ArrayList<>();
+        }
+
+        Object[] elements = (Object[]) array.getArray();
+        List<Long> values = new ArrayList<>(elements.length);
+        for (Object value : elements) {
+            values.add(((Number) value).longValue());
+        }
+        array.free();
+
+        return values;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.repository.search;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+// Инвертированный индекс слов заголовка и текста постов: слово -> id постов
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "blog.search.mode", havingValue = "memory")
+public class InMemoryPostSearchIndex {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final Map<String, Set<Long>> postIdsByToken = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> tokensByPostId = new ConcurrentHashMap<>();
+
+    public InMemoryPostSearchIndex(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        //language=SQL
+        String sqlQuery = "SELECT id, title, text FROM posts";
+
+        jdbcTemplate.getJdbcOperations().query(sqlQuery, rs -> {
+            index(rs.getLong("id"), rs.getString("title"), rs.getString("text"));
+        });
+
+        log.info("In-memory search index built for {} posts", tokensByPostId.size());
+    }
+
+    public void index(Long postId, String title, String text) {
+        Set<String> tokens = new HashSet<>();
+        tokens.addAll(tokenize(title));
+        tokens.addAll(tokenize(text));
+
+        Set<String> previous = tokensByPostId.put(postId, tokens);
+        if (previous != null) {
+            previous.stream()
+                    .filter(token -> !tokens.contains(token))
+                    .forEach(token -> unlink(token, postId));
+        }
+
+        tokens.forEach(token -> postIdsByToken
+                .computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet())
+                .add(postId));
+    }
+
+    public void remove(Long postId) {
+        Set<String> tokens = tokensByPostId.remove(postId);
+        if (tokens != null) {
+            tokens.forEach(token -> unlink(token, postId));
+        }
+    }
+
+    // Посты, содержащие все слова запроса в заголовке или тексте
+    public Set<Long> search(String words) {
+        List<String> tokens = tokenize(words);
+        if (tokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        //start from the rarest token to keep the intersection small
+        List<Set<Long>> postingLists = tokens.stream()
+                .map(token -> postIdsByToken.getOrDefault(token, Collections.emptySet()))
+                .sorted((a, b) -> Integer.compare(a.size(), b.size()))
+                .toList();
+
+        Set<Long> result = new HashSet<>(postingLists.getFirst());
+        for (int i = 1; i < postingLists.size() && !result.isEmpty(); i++) {
+            result.retainAll(postingLists.get(i));
+        }
+
+        return result;
+    }
+
+    private void unlink(String token, Long postId) {
+        postIdsByToken.computeIfPresent(token, (key, postIds) -> {
+            postIds.remove(postId);
+            return postIds.isEmpty() ? null : postIds;
+        });
+    }
+
+    private static List<String> tokenize(String value) {
+        if (value == null || value.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        return Arrays.stream(TOKEN_SEPARATOR.split(value.toLowerCase(Locale.ROOT)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+}
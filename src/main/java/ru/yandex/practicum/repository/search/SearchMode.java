@@ -0,0 +1,11 @@
+package ru.yandex.practicum.repository.search;
+
+// Режим поиска по словам, задаётся свойством blog.search.mode
+public enum SearchMode {
+    // title LIKE '%слова%' — последовательное сканирование, только непрерывная фраза в заголовке
+    LIKE,
+    // tsvector по заголовку и тексту с GIN-индексом и ранжированием (PostgreSQL)
+    FULLTEXT,
+    // инвертированный индекс в памяти приложения (H2 и окружения без полнотекстового поиска)
+    MEMORY
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.repository.sql;
+
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+import java.util.List;
+import java.util.Map;
+
+// Запрос с именованными параметрами, разобранный один раз: при выполнении остаётся только
+// связать значения с позициями. Коллекции не разворачиваются — списки передаются массивами (= ANY)
+public record FeedQuery(ParsedSql parsedSql, PreparedStatementCreatorFactory statementFactory) {
+
+    public static FeedQuery compile(String sql) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        MapSqlParameterSource noValues = new MapSqlParameterSource();
+
+        String jdbcSql = NamedParameterUtils.substituteNamedParameters(parsedSql, noValues);
+        List<SqlParameter> parameters = NamedParameterUtils.buildSqlParameterList(parsedSql, noValues);
+        return new FeedQuery(parsedSql, new PreparedStatementCreatorFactory(jdbcSql, parameters));
+    }
+
+    public <T> List<T> query(NamedParameterJdbcTemplate jdbcTemplate, Map<String, ?> params, RowMapper<T> rowMapper) {
+        Object[] values = NamedParameterUtils.buildValueArray(parsedSql, new MapSqlParameterSource(params), null);
+        return jdbcTemplate.getJdbcOperations().query(statementFactory.newPreparedStatementCreator(values), rowMapper);
+    }
+}
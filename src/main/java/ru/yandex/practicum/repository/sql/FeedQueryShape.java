@@ -0,0 +1,12 @@
+package ru.yandex.practicum.repository.sql;
+
+// Форма запроса ленты: от неё зависит текст SQL, но не значения параметров.
+// paged — OFFSET для страницы, курсор для keyset-пагинации
+public record FeedQueryShape(Kind kind, boolean words, boolean hashtags, boolean paged) {
+
+    public enum Kind {
+        PAGE,
+        AFTER,
+        COUNT
+    }
+}
@@ -0,0 +1,39 @@
+package ru.yandex.practicum.repository.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Поисковая строка ленты: слова ищутся в заголовке или тексте, #слова — по тегам
+public record SearchTerms(String words, List<String> hashtags) {
+    private static final SearchTerms EMPTY = new SearchTerms("", List.of());
+
+    public static SearchTerms parse(String searchString) {
+        if (searchString == null || searchString.isBlank()) {
+            return EMPTY;
+        }
+
+        List<String> words = new ArrayList<>();
+        List<String> hashtags = new ArrayList<>();
+        for (String word : searchString.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            if (word.startsWith("#")) {
+                hashtags.add(word.substring(1));
+            } else {
+                words.add(word);
+            }
+        }
+
+        return new SearchTerms(String.join(" ", words), hashtags);
+    }
+
+    public boolean hasWords() {
+        return !words.isEmpty();
+    }
+
+    public boolean hasHashtags() {
+        return !hashtags.isEmpty();
+    }
+}
@@ -5,16 +5,21 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.exception.NotFoundException;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.repository.interfaces.CommentRepository;
-import ru.yandex.practicum.utils.Utility;
 
 import java.util.List;
 
 @Service
 public class CommentService {
     private final CommentRepository commentRepository;
+    private final PostCache postCache;
+    private final IdGenerator idGenerator;
 
-    public CommentService(@Qualifier("JdbcCommentRepository") CommentRepository commentRepository) {
+    public CommentService(@Qualifier("JdbcCommentRepository") CommentRepository commentRepository,
+                          PostCache postCache,
+                          IdGenerator idGenerator) {
         this.commentRepository = commentRepository;
+        this.postCache = postCache;
+        this.idGenerator = idGenerator;
     }
 
     public List<Comment> getComments(Long postId) {
@@ -23,11 +28,14 @@ public class CommentService {
 
     public Comment createComment(Long postId, Comment comment) {
         Comment commentToAdd = Comment.builder()
-                .id(Utility.getIdForEntity())
+                .id(idGenerator.nextId())
                 .postId(postId)
                 .text(comment.getText())
                 .build();
-        return commentRepository.createComment(commentToAdd);
+        Comment createdComment = commentRepository.createComment(commentToAdd);
+        //the post carries the comments count
+        postCache.evict(postId);
+        return createdComment;
     }
 
     public Comment updateComment(Long postId, Long commentId, Comment comment) {
@@ -46,5 +54,6 @@ public class CommentService {
 
     public void deleteComment(Long postId, Long commentId) {
         commentRepository.deleteComment(postId, commentId);
+        postCache.evict(postId);
     }
 }
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.interfaces.CommentRepository;
+
+// Исправляет расхождения posts.comments_count с фактическим числом комментариев
+// (записи в обход приложения, данные до появления столбца)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "blog.comments.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class CommentsCountReconciler {
+    private final CommentRepository commentRepository;
+    private final PostCache postCache;
+
+    public CommentsCountReconciler(@Qualifier("JdbcCommentRepository") CommentRepository commentRepository,
+                                   PostCache postCache) {
+        this.commentRepository = commentRepository;
+        this.postCache = postCache;
+    }
+
+    @Scheduled(initialDelayString = "${blog.comments.reconcile.initial-delay:PT1M}",
+            fixedDelayString = "${blog.comments.reconcile.interval:PT1H}")
+    public void reconcile() {
+        int repaired = commentRepository.reconcileCommentsCounts();
+        if (repaired > 0) {
+            log.warn("Repaired comments_count for {} posts", repaired);
+            //repairs are rare, dropping the whole cache is simpler than returning the ids from the UPDATE
+            postCache.clear();
+        }
+    }
+}
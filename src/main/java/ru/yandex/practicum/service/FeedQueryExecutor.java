@@ -0,0 +1,62 @@
+package ru.yandex.practicum.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Выполняет независимые запросы ленты параллельно с основным, на виртуальных потоках
+@Component
+public class FeedQueryExecutor {
+    private final SimpleAsyncTaskExecutor executor;
+    private final Duration timeout;
+
+    public FeedQueryExecutor(@Value("${blog.posts.parallel-queries.max-concurrency:32}") int maxConcurrency,
+                             @Value("${blog.posts.parallel-queries.timeout:5s}") Duration timeout) {
+        this.executor = new SimpleAsyncTaskExecutor("feed-query-");
+        executor.setVirtualThreads(true);
+        //over the limit the submitting request waits, so a burst can't take the whole connection pool
+        executor.setConcurrencyLimit(maxConcurrency);
+        this.timeout = timeout;
+    }
+
+    public <T> Future<T> submit(Callable<T> query) {
+        return executor.submit(query);
+    }
+
+    // Результат запроса или его исключение как есть; по истечении таймаута запрос прерывается
+    public <T> T join(Future<T> future) {
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            //interrupts a thread still waiting for a pooled connection
+            future.cancel(true);
+            throw new QueryTimeoutException("Feed query did not complete in " + timeout, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a feed query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+}
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-подобные id: миллисекунды от эпохи блога | номер узла | счётчик в пределах миллисекунды.
+// 41 + 4 + 8 = 53 бита — id остаются точными числами в JavaScript на фронте.
+// Растут со временем, поэтому вставки идут в правый край индекса первичного ключа.
+// Id, выданные до него из UUID, переносит db/renumber-legacy-ids-postgresql.sql (см. README)
+@Component
+public class IdGenerator {
+    //2024-01-01T00:00:00Z, 41 бит миллисекунд хватает до 2093 года
+    private static final long EPOCH = 1_704_067_200_000L;
+    private static final int NODE_BITS = 4;
+    private static final int SEQUENCE_BITS = 8;
+    private static final long MAX_NODE = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    //время и счётчик одним long: (millis << SEQUENCE_BITS) | sequence
+    private final AtomicLong state = new AtomicLong();
+
+    public IdGenerator(@Value("${blog.ids.node-id:0}") long node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("blog.ids.node-id must be between 0 and " + MAX_NODE);
+        }
+        this.node = node;
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long current;
+        long next;
+        do {
+            current = state.get();
+            //переполнение счётчика переносится в следующую миллисекунду, при переводе часов назад
+            //продолжаем от последнего выданного значения — id не повторяются и не убывают
+            next = Math.max(now, current + 1);
+        } while (!state.compareAndSet(current, next));
+
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS)
+                | node << SEQUENCE_BITS
+                | next & SEQUENCE_MASK;
+    }
+}
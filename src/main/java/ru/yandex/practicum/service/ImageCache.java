@@ -0,0 +1,97 @@
+package ru.yandex.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.utils.Utility;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+// Кеш содержимого часто запрашиваемых изображений, ограниченный суммарным размером в байтах.
+// Метрики cache.gets{cache=images,result=hit|miss} и cache.eviction.weight (вытесненные байты)
+@Component
+public class ImageCache {
+    private final Cache<ImageKey, byte[]> cache;
+    private final long maxEntrySize;
+
+    public ImageCache(@Value("${blog.images.cache.enabled:false}") boolean enabled,
+                      @Value("${blog.images.cache.max-size:64MB}") DataSize maxSize,
+                      @Value("${blog.images.cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                      @Value("${blog.images.cache.ttl:1h}") Duration ttl,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+        this.maxEntrySize = maxEntrySize.toBytes();
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((ImageKey key, byte[] content) -> content.length)
+                .expireAfterAccess(ttl)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "images"));
+    }
+
+    public Resource get(PostImage image, Supplier<Resource> loader) {
+        //large originals are streamed, keeping them would push out many small hot images
+        if (cache == null || image.getSize() == null || image.getSize() > maxEntrySize) {
+            return loader.get();
+        }
+
+        //the hash in the key keeps a replaced image from being served even before eviction
+        ImageKey key = new ImageKey(image.getPostId(), image.getWidth(), image.getContentHash());
+        byte[] cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return new ByteArrayResource(cached);
+        }
+
+        Resource content = loader.get();
+        if (content.isFile()) {
+            //served by sendfile from the OS page cache
+            return content;
+        }
+
+        //loaded outside the cache's compute lock: two concurrent misses may both read the image
+        byte[] loaded;
+        try {
+            loaded = content.getContentAsByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        cache.put(key, loaded);
+        return new ByteArrayResource(loaded);
+    }
+
+    // Вызывается при загрузке нового изображения и удалении поста
+    public void evict(Long postId) {
+        if (cache == null) {
+            return;
+        }
+
+        cache.asMap().keySet().removeIf(key -> key.postId().equals(postId));
+        //a read between this call and the commit still sees the old row
+        Utility.afterCommit(() -> cache.asMap().keySet().removeIf(key -> key.postId().equals(postId)));
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private record ImageKey(Long postId, Integer width, String contentHash) {
+    }
+}
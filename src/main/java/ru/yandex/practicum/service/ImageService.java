@@ -1,49 +1,128 @@
 package ru.yandex.practicum.service;
 
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import ru.yandex.practicum.model.PostImage;
 import ru.yandex.practicum.repository.interfaces.ImageRepository;
+import ru.yandex.practicum.repository.interfaces.ImageVariantRepository;
+import ru.yandex.practicum.utils.Utility;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
 
 @Service
 public class ImageService {
+    private static final String PLACEHOLDER_PATH = "images/image404.jpg";
+
     private final ImageRepository imageRepository;
+    private final ImageVariantRepository variantRepository;
+    private final ImageVariantGenerator variantGenerator;
+    private final ImageCache imageCache;
+    private final Duration imageMaxAge;
+    //read once: served on every request for a post without an image
+    private final byte[] placeholder;
 
-    public ImageService(@Qualifier("JdbcImageRepository") ImageRepository imageRepository) {
-        this.imageRepository = imageRepository;
+    // Хранилище выбирается по имени бина: JdbcImageRepository (в БД) или FileSystemImageRepository
+    public ImageService(Map<String, ImageRepository> imageRepositories,
+                        @Value("${blog.images.repository:JdbcImageRepository}") String repositoryName,
+                        @Qualifier("JdbcImageVariantRepository") ImageVariantRepository variantRepository,
+                        ImageVariantGenerator variantGenerator,
+                        ImageCache imageCache,
+                        @Value("${blog.images.cache-max-age:1d}") Duration imageMaxAge) throws IOException {
+        this.variantRepository = variantRepository;
+        this.variantGenerator = variantGenerator;
+        this.imageCache = imageCache;
+        this.imageMaxAge = imageMaxAge;
+        this.placeholder = new ClassPathResource(PLACEHOLDER_PATH).getContentAsByteArray();
+        this.imageRepository = imageRepositories.get(repositoryName);
+        if (this.imageRepository == null) {
+            throw new IllegalStateException("Unknown image repository " + repositoryName
+                    + ", expected one of " + imageRepositories.keySet());
+        }
     }
 
+    @Transactional
     public void setImageForPost(Long postId, MultipartFile image) throws IOException {
-        PostImage postImage = PostImage.builder()
-                .postId(postId)
-                .fileName(image.getOriginalFilename())
-                .contentType(image.getContentType())
-                .size(image.getSize())
-                .data(image.getBytes())
-                .build();
-        imageRepository.savePostImage(postImage);
+        //copies of the previous image must not outlive it
+        variantRepository.deleteVariants(postId);
+        imageCache.evict(postId);
+
+        //the part is read from the temporary file (or memory below the threshold) while it is written to the storage
+        try (InputStream data = image.getInputStream()) {
+            PostImage postImage = PostImage.builder()
+                    .postId(postId)
+                    .fileName(image.getOriginalFilename())
+                    .contentType(image.getContentType())
+                    .size(image.getSize())
+                    .data(data)
+                    .build();
+            imageRepository.savePostImage(postImage);
+        }
+
+        Utility.afterCommit(() -> getImageInfo(postId)
+                .ifPresent(saved -> variantGenerator.submit(saved, loadImageContent(saved))));
     }
 
+    // Изображение не загружается в память целиком: содержимое копируется в ответ частями
     public Resource getImageForPost(Long postId) {
-        PostImage image = imageRepository.getPostImageByPostId(postId)
-                .orElseGet(() -> {
-                    ClassPathResource resource = new ClassPathResource("images/image404.jpg");
-                    try {
-                        return PostImage.builder()
-                                .postId(postId)
-                                .data(resource.getContentAsByteArray())
-                                .build();
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                });
-
-        return new ByteArrayResource(image.getData());
+        return getImageInfo(postId)
+                .map(this::getImageContent)
+                .orElseGet(this::getPlaceholder);
+    }
+
+    // Описание без содержимого — для ответа 304 на условный запрос этого достаточно
+    public Optional<PostImage> getImageInfo(Long postId) {
+        return imageRepository.getPostImageByPostId(postId);
+    }
+
+    // Уменьшенная копия шириной не меньше size, если она уже построена, иначе оригинал
+    public Optional<PostImage> getImageInfo(Long postId, Integer size) {
+        Integer width = size == null ? null : variantGenerator.widthFor(size);
+        if (width != null) {
+            Optional<PostImage> variant = variantRepository.getVariant(postId, width);
+            if (variant.isPresent()) {
+                return variant;
+            }
+        }
+
+        return getImageInfo(postId);
+    }
+
+    // Оригинал вместо ещё не построенной уменьшенной копии: после генерации по тому же URL отдаётся копия
+    public boolean isVariantPending(PostImage image, Integer size) {
+        return size != null && image.getWidth() == null && variantGenerator.widthFor(size) != null;
+    }
+
+    public Resource getImageContent(PostImage image) {
+        return imageCache.get(image, () -> loadImageContent(image));
+    }
+
+    // Cache-Control: max-age для загруженных изображений; после него браузер проверяет ETag
+    public Duration getImageMaxAge() {
+        return imageMaxAge;
+    }
+
+    public Resource getPlaceholder() {
+        return new ByteArrayResource(placeholder);
+    }
+
+    private Resource loadImageContent(PostImage image) {
+        if (image.getWidth() != null) {
+            //variants are a few dozen kilobytes, read at once
+            return variantRepository.getVariantData(image.getPostId(), image.getWidth())
+                    .<Resource>map(ByteArrayResource::new)
+                    .orElseGet(this::getPlaceholder);
+        }
+
+        return imageRepository.getPostImageContent(image);
     }
 }
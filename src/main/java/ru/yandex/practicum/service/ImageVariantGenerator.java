@@ -0,0 +1,176 @@
+package ru.yandex.practicum.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.repository.interfaces.ImageVariantRepository;
+import ru.yandex.practicum.utils.Utility;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.List;
+
+// Уменьшенные копии изображений для ленты. Строятся в фоне ограниченным пулом после загрузки оригинала,
+// пока копии нет — отдаётся оригинал. Метрика blog.images.variants.queue — задачи, ждущие в очереди
+@Slf4j
+@Component
+public class ImageVariantGenerator {
+    private final ImageVariantRepository variantRepository;
+    private final List<Integer> widths;
+    private final long maxSourcePixels;
+    private final ThreadPoolTaskExecutor executor;
+
+    public ImageVariantGenerator(@Qualifier("JdbcImageVariantRepository") ImageVariantRepository variantRepository,
+                                 @Value("${blog.images.variants.widths:200,800}") List<Integer> widths,
+                                 @Value("${blog.images.variants.max-source-pixels:50000000}") long maxSourcePixels,
+                                 @Value("${blog.images.variants.threads:2}") int threads,
+                                 @Value("${blog.images.variants.queue-capacity:100}") int queueCapacity,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        this.variantRepository = variantRepository;
+        this.widths = widths.stream().sorted().toList();
+        this.maxSourcePixels = maxSourcePixels;
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("image-variants-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        //a full queue rejects new uploads' variants instead of growing without bound
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+
+        meterRegistry.ifAvailable(registry -> Gauge.builder("blog.images.variants.queue",
+                        executor, ThreadPoolTaskExecutor::getQueueSize)
+                .register(registry));
+    }
+
+    // Наименьшая копия не уже запрошенной ширины; null — подходит только оригинал
+    public Integer widthFor(int size) {
+        return widths.stream()
+                .filter(width -> width >= size)
+                .findFirst()
+                .orElse(null);
+    }
+
+    public void submit(PostImage original, Resource content) {
+        if (original.getContentHash() == null) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> generate(original, content));
+        } catch (TaskRejectedException e) {
+            log.warn("Image variants queue is full, variants for post {} are skipped", original.getPostId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void generate(PostImage original, Resource content) {
+        try {
+            BufferedImage source = read(content);
+            if (source == null) {
+                return;
+            }
+
+            boolean alpha = source.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpeg";
+            for (Integer width : widths) {
+                if (width >= source.getWidth()) {
+                    //never upscaled: the original is served instead
+                    break;
+                }
+
+                byte[] data = encode(resize(source, width, alpha), format);
+                MessageDigest digest = Utility.sha256();
+                digest.update(data);
+
+                PostImage variant = PostImage.builder()
+                        .postId(original.getPostId())
+                        .width(width)
+                        .contentType("image/" + format)
+                        .size((long) data.length)
+                        .contentHash(Utility.toHex(digest))
+                        .build();
+                variantRepository.saveVariant(variant, data, original.getContentHash());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to generate image variants for post {}", original.getPostId(), e);
+        }
+    }
+
+    private BufferedImage read(Resource content) throws IOException {
+        try (InputStream stream = content.getInputStream();
+             ImageInputStream in = ImageIO.createImageInputStream(stream)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                //not an image format ImageIO can decode
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                //the header is enough to refuse a decompression bomb before decoding it
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxSourcePixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+
+        //halving steps keep bilinear scaling from dropping pixels on large reductions
+        do {
+            int stepWidth = Math.max(width, current.getWidth() / 2);
+            int stepHeight = Math.max(1, Math.round((float) source.getHeight() * stepWidth / source.getWidth()));
+
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, stepWidth, stepHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (current.getWidth() > width);
+
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format, out)) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        return out.toByteArray();
+    }
+}
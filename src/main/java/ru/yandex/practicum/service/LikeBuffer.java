@@ -0,0 +1,155 @@
+package ru.yandex.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.interfaces.PostRepository;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+// Лайки копятся в памяти и периодически записываются одним пакетным UPDATE,
+// вместо UPDATE (и блокировки строки поста) на каждый клик
+@Slf4j
+@Component
+public class LikeBuffer {
+    private final PostRepository postRepository;
+    private final PostCache postCache;
+    private final boolean enabled;
+
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    //taken from pending, not yet committed: still visible to readers
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+    //flush takes it exclusively to drain counters, likes only validate an optimistic stamp
+    private final StampedLock drainLock = new StampedLock();
+
+    private final Counter flushesCounter;
+    private final Counter flushedLikesCounter;
+
+    public LikeBuffer(@Qualifier("JdbcPostRepository") PostRepository postRepository,
+                      PostCache postCache,
+                      @Value("${blog.likes.write-behind.enabled:false}") boolean enabled,
+                      ObjectProvider<MeterRegistry> meterRegistry) {
+        this.postRepository = postRepository;
+        this.postCache = postCache;
+        this.enabled = enabled;
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.flushesCounter = registry.counter("blog.likes.flushes");
+        this.flushedLikesCounter = registry.counter("blog.likes.flushed");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addLike(Long postId) {
+        while (true) {
+            long stamp = drainLock.tryOptimisticRead();
+            LongAdder likes = pending.computeIfAbsent(postId, key -> new LongAdder());
+            likes.increment();
+
+            if (stamp != 0 && drainLock.validate(stamp)) {
+                //no flush since the stamp: the next flush drains this counter
+                return;
+            }
+
+            //a flush ran concurrently: once it is over the counter is either still registered
+            //(the like is kept) or was dropped as idle (the like is lost with it, so count it again)
+            long readStamp = drainLock.readLock();
+            drainLock.unlockRead(readStamp);
+            if (pending.get(postId) == likes) {
+                return;
+            }
+        }
+    }
+
+    // Лайки, ещё не записанные в БД, — чтобы автор лайка сразу видел его в посте
+    public void applyPending(Post post) {
+        if (!enabled || post == null || post.getId() == null) {
+            return;
+        }
+
+        long likes = pendingLikes(post.getId());
+        if (likes > 0) {
+            long stored = post.getLikesCount() == null ? 0 : post.getLikesCount();
+            post.setLikesCount((short) (stored + likes));
+        }
+    }
+
+    public void discard(Long postId) {
+        pending.remove(postId);
+        inFlight.remove(postId);
+    }
+
+    @Scheduled(fixedDelayString = "${blog.likes.write-behind.flush-interval:PT1S}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+
+        Map<Long, Long> likes = drain();
+        if (likes.isEmpty()) {
+            return;
+        }
+
+        try {
+            postRepository.addLikesToPosts(likes);
+            flushesCounter.increment();
+            likes.values().forEach(flushedLikesCounter::increment);
+            likes.keySet().forEach(postCache::evict);
+        } catch (DataAccessException e) {
+            log.error("Failed to flush likes for {} posts, will retry", likes.size(), e);
+            likes.forEach((postId, count) -> pending.computeIfAbsent(postId, key -> new LongAdder()).add(count));
+        } finally {
+            likes.keySet().forEach(inFlight::remove);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private long pendingLikes(Long postId) {
+        LongAdder likes = pending.get(postId);
+        return (likes == null ? 0 : likes.sum()) + inFlight.getOrDefault(postId, 0L);
+    }
+
+    private Map<Long, Long> drain() {
+        Map<Long, Long> likes = new HashMap<>();
+
+        long stamp = drainLock.writeLock();
+        try {
+            Iterator<Map.Entry<Long, LongAdder>> iterator = pending.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, LongAdder> entry = iterator.next();
+                long count = entry.getValue().sumThenReset();
+                if (count == 0) {
+                    //idle since the previous flush
+                    iterator.remove();
+                } else {
+                    likes.put(entry.getKey(), count);
+                    inFlight.merge(entry.getKey(), count, Long::sum);
+                }
+            }
+        } finally {
+            drainLock.unlockWrite(stamp);
+        }
+
+        return likes;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.utils.Utility;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+// Кеш собранных постов для GET /api/posts/{id}, метрики cache.gets{cache=posts,result=hit|miss}
+@Component
+public class PostCache {
+    //1024 stripes, taken from the top bits of the mixed post id
+    private static final int STRIPE_BITS = 10;
+
+    private final Cache<Long, Post> cache;
+    //bumped by an eviction of a post in the stripe, so a load that overlapped one doesn't keep its result.
+    //Striped rather than a map per id: the counters never shrink, a map would grow with every evicted post
+    private final AtomicLongArray generations = new AtomicLongArray(1 << STRIPE_BITS);
+
+    public PostCache(@Value("${blog.cache.posts.enabled:false}") boolean enabled,
+                     @Value("${blog.cache.posts.max-size:10000}") long maxSize,
+                     @Value("${blog.cache.posts.ttl:10m}") Duration ttl,
+                     ObjectProvider<MeterRegistry> meterRegistry) {
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "posts"));
+    }
+
+    public Post get(Long postId, Function<Long, Post> loader) {
+        if (cache == null) {
+            return loader.apply(postId);
+        }
+
+        Post cached = cache.getIfPresent(postId);
+        if (cached != null) {
+            //a copy, so callers can't change the cached instance
+            return copy(cached);
+        }
+
+        //loaded outside Caffeine's compute: it runs under a ConcurrentHashMap bin lock (synchronized),
+        //which would pin a virtual thread to its carrier for the whole query
+        int stripe = stripe(postId);
+        long currentGeneration = generations.get(stripe);
+        Post loaded = loader.apply(postId);
+        cache.put(postId, loaded);
+        if (generations.get(stripe) != currentGeneration) {
+            //an eviction of this post (or rarely of another one in the stripe) ran during the load,
+            //the loaded row may be older than it
+            cache.invalidate(postId);
+        }
+
+        return copy(loaded);
+    }
+
+    // Вызывается при каждой записи, затрагивающей пост: изменение, удаление, лайк, теги, комментарии
+    public void evict(Long postId) {
+        if (cache == null) {
+            return;
+        }
+
+        invalidate(postId);
+        //a load between this call and the commit still sees the old row
+        Utility.afterCommit(() -> invalidate(postId));
+    }
+
+    // После исправлений в обход отдельных постов, например сверки счётчиков
+    public void clear() {
+        if (cache == null) {
+            return;
+        }
+
+        for (int stripe = 0; stripe < generations.length(); stripe++) {
+            generations.incrementAndGet(stripe);
+        }
+        cache.invalidateAll();
+    }
+
+    private void invalidate(Long postId) {
+        generations.incrementAndGet(stripe(postId));
+        cache.invalidate(postId);
+    }
+
+    private static int stripe(Long postId) {
+        //ids of one millisecond differ only in the low bits, the multiplication spreads them
+        return (int) ((postId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - STRIPE_BITS));
+    }
+
+    private static Post copy(Post post) {
+        return post.toBuilder()
+                .tags(post.getTags() == null ? null : new ArrayList<>(post.getTags()))
+                .build();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.repository.interfaces.ExportRepository;
+import tools.jackson.core.StreamWriteFeature;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+import tools.jackson.databind.SequenceWriter;
+import tools.jackson.databind.SerializationFeature;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// Выгрузка всего блога в NDJSON: строки пишутся в ответ по мере чтения курсора,
+// в памяти одновременно находится не больше fetchSize постов
+@Slf4j
+@Service
+public class PostExportService {
+    private final ExportRepository exportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectWriter writer;
+    private final int flushEvery;
+
+    public PostExportService(@Qualifier("JdbcExportRepository") ExportRepository exportRepository,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${blog.export.fetch-size:500}") int flushEvery) {
+        this.exportRepository = exportRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        //read-only транзакция нужна PostgreSQL для чтения курсором и даёт согласованный снимок
+        this.transactionTemplate.setReadOnly(true);
+        this.writer = objectMapper.writer()
+                .withRootValueSeparator("\n")
+                //сбрасываем буфер раз в порцию строк, а не после каждой
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .without(StreamWriteFeature.AUTO_CLOSE_TARGET);
+        this.flushEvery = flushEvery;
+    }
+
+    public void exportPosts(boolean withImages, OutputStream output) throws IOException {
+        long[] exported = {0};
+        try (SequenceWriter lines = writer.writeValues(output)) {
+            transactionTemplate.executeWithoutResult(status -> exportRepository.forEachPost(withImages, post -> {
+                lines.write(post);
+                if (++exported[0] % flushEvery == 0) {
+                    flush(lines);
+                }
+            }));
+        }
+        if (exported[0] > 0) {
+            output.write('\n');
+        }
+        output.flush();
+
+        log.info("Exported {} posts", exported[0]);
+    }
+
+    private void flush(Flushable lines) {
+        try {
+            lines.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.exception.InvalidImportException;
+import ru.yandex.practicum.model.Comment;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.model.dto.ImportReport;
+import ru.yandex.practicum.model.dto.ImportedPost;
+import ru.yandex.practicum.repository.interfaces.CommentRepository;
+import ru.yandex.practicum.repository.interfaces.PostRepository;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+import ru.yandex.practicum.service.count.PostsCountStrategy;
+import tools.jackson.core.JacksonException;
+import tools.jackson.core.exc.JacksonIOException;
+import tools.jackson.databind.MappingIterator;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Массовый импорт постов из NDJSON: строки читаются по одной, пишутся пакетами JDBC,
+// каждая порция — отдельная транзакция, так что память не растёт с размером файла
+@Slf4j
+@Service
+public class PostImportService {
+    private final PostRepository postRepository;
+    private final TagRepository tagRepository;
+    private final CommentRepository commentRepository;
+    private final PostsCountStrategy postsCountStrategy;
+    private final IdGenerator idGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectReader reader;
+    private final int chunkSize;
+
+    public PostImportService(@Qualifier("JdbcPostRepository") PostRepository postRepository,
+                             @Qualifier("JdbcTagRepository") TagRepository tagRepository,
+                             @Qualifier("JdbcCommentRepository") CommentRepository commentRepository,
+                             PostsCountStrategy postsCountStrategy,
+                             IdGenerator idGenerator,
+                             PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${blog.import.chunk-size:1000}") int chunkSize) {
+        this.postRepository = postRepository;
+        this.tagRepository = tagRepository;
+        this.commentRepository = commentRepository;
+        this.postsCountStrategy = postsCountStrategy;
+        this.idGenerator = idGenerator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reader = objectMapper.readerFor(ImportedPost.class);
+        this.chunkSize = chunkSize;
+    }
+
+    // Порции, записанные до ошибки во входных данных, остаются в базе
+    public ImportReport importPosts(InputStream input) throws IOException {
+        long started = System.nanoTime();
+        ImportReport report = new ImportReport(0L, 0L, 0L, 0L, 0, 0L, 0L);
+
+        List<ImportedPost> chunk = new ArrayList<>(chunkSize);
+        try (MappingIterator<ImportedPost> posts = reader.readValues(input)) {
+            while (posts.hasNextValue()) {
+                chunk.add(validate(posts.nextValue(), report.getPosts() + chunk.size() + 1));
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, report);
+                    chunk.clear();
+                }
+            }
+            writeChunk(chunk, report);
+        } catch (JacksonIOException e) {
+            //обрыв чтения тела запроса — это не ошибка во входных данных
+            throw e.getCause();
+        } catch (JacksonException e) {
+            throw new InvalidImportException("Invalid NDJSON after " + (report.getPosts() + chunk.size())
+                    + " posts: " + e.getOriginalMessage());
+        } finally {
+            if (report.getPosts() > 0) {
+                postsCountStrategy.invalidate();
+            }
+        }
+
+        long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+        report.setMillis(elapsedNanos / 1_000_000);
+        report.setRowsPerSecond(report.getRows() * 1_000_000_000 / elapsedNanos);
+        log.info("Imported {} posts, {} tags, {} comments in {} ms ({} rows/s)", report.getPosts(),
+                report.getTags(), report.getComments(), report.getMillis(), report.getRowsPerSecond());
+        return report;
+    }
+
+    private ImportedPost validate(ImportedPost post, long line) {
+        if (post.getTitle() == null || post.getTitle().isBlank() || post.getText() == null) {
+            throw new InvalidImportException("Post " + line + ": title and text are required");
+        }
+        if (post.getComments() != null && post.getComments().stream().anyMatch(c -> c == null || c.getText() == null)) {
+            throw new InvalidImportException("Post " + line + ": comment text is required");
+        }
+        if (post.getComments() != null && post.getComments().size() > Short.MAX_VALUE) {
+            throw new InvalidImportException("Post " + line + ": more than " + Short.MAX_VALUE + " comments");
+        }
+        return post;
+    }
+
+    private void writeChunk(List<ImportedPost> chunk, ImportReport report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        List<Post> posts = new ArrayList<>(chunk.size());
+        Map<Long, List<String>> tags = new LinkedHashMap<>();
+        List<Comment> comments = new ArrayList<>();
+        for (ImportedPost imported : chunk) {
+            long postId = idGenerator.nextId();
+            List<Comment> postComments = imported.getComments() == null ? List.of() : imported.getComments();
+
+            posts.add(Post.builder()
+                    .id(postId)
+                    .title(imported.getTitle())
+                    .text(imported.getText())
+                    .likesCount(imported.getLikesCount() == null ? (short) 0 : imported.getLikesCount())
+                    .commentsCount((short) postComments.size())
+                    .build());
+            if (imported.getTags() != null && !imported.getTags().isEmpty()) {
+                tags.put(postId, imported.getTags());
+            }
+            for (Comment comment : postComments) {
+                comments.add(Comment.builder()
+                        .id(idGenerator.nextId())
+                        .postId(postId)
+                        .text(comment.getText())
+                        .build());
+            }
+        }
+
+        int links = transactionTemplate.execute(status -> {
+            postRepository.addPosts(posts);
+            int saved = tagRepository.saveTagsForNewPosts(tags);
+            commentRepository.createComments(comments);
+            return saved;
+        });
+
+        report.setPosts(report.getPosts() + posts.size());
+        report.setTags(report.getTags() + links);
+        report.setComments(report.getComments() + comments.size());
+        report.setRows(report.getRows() + posts.size() + links + comments.size());
+        report.setChunks(report.getChunks() + 1);
+    }
+}
@@ -6,35 +6,51 @@ import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.exception.NotFoundException;
 import ru.yandex.practicum.model.Post;
 import ru.yandex.practicum.model.dto.PostListDto;
-import ru.yandex.practicum.repository.interfaces.CommentRepository;
 import ru.yandex.practicum.repository.interfaces.PostRepository;
 import ru.yandex.practicum.repository.interfaces.TagRepository;
+import ru.yandex.practicum.service.count.PostsCountStrategy;
 import ru.yandex.practicum.utils.Utility;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 @Service
 public class PostService {
     private final PostRepository postRepository;
     private final TagRepository tagRepository;
-    private final CommentRepository commentRepository;
+    private final PostsCountStrategy postsCountStrategy;
+    private final PostCache postCache;
+    private final LikeBuffer likeBuffer;
+    private final ImageCache imageCache;
+    private final FeedQueryExecutor feedQueryExecutor;
+    private final IdGenerator idGenerator;
 
     public PostService(@Qualifier("JdbcPostRepository") PostRepository postRepository,
                        @Qualifier("JdbcTagRepository") TagRepository tagRepository,
-                       @Qualifier("JdbcCommentRepository") CommentRepository commentRepository) {
+                       PostsCountStrategy postsCountStrategy,
+                       PostCache postCache,
+                       LikeBuffer likeBuffer,
+                       ImageCache imageCache,
+                       FeedQueryExecutor feedQueryExecutor,
+                       IdGenerator idGenerator) {
         this.postRepository = postRepository;
         this.tagRepository = tagRepository;
-        this.commentRepository = commentRepository;
+        this.postsCountStrategy = postsCountStrategy;
+        this.postCache = postCache;
+        this.likeBuffer = likeBuffer;
+        this.imageCache = imageCache;
+        this.feedQueryExecutor = feedQueryExecutor;
+        this.idGenerator = idGenerator;
     }
 
     @Transactional
     public Post addPost(Post post) {
         Post postToAdd = Post.builder()
-                .id(Utility.getIdForEntity())
+                .id(idGenerator.nextId())
                 .text(post.getText())
                 .title(post.getTitle())
                 .tags(post.getTags())
@@ -48,50 +64,97 @@ public class PostService {
             tagRepository.saveTagsForPost(postToAdd.getId(), postToAdd.getTags());
         }
 
+        postsCountStrategy.invalidate();
+
         return postToAdd;
     }
 
     public Post getPost(Long id) {
-        Post post = postRepository.getPost(id).orElseThrow(() -> new NotFoundException("Post not found"));
-        List<String> tags = tagRepository.getTagsForPost(id);
-
-        post.setTags(tags);
-        post.setCommentsCount(commentRepository.getPostLikeCount(post.getId()));
-
+        Post post = postCache.get(id, this::loadPost);
+        likeBuffer.applyPending(post);
         return post;
     }
 
+    private Post loadPost(Long id) {
+        return postRepository.getPost(id).orElseThrow(() -> new NotFoundException("Post not found"));
+    }
+
     public PostListDto getPosts(String searchString, Integer pageSize, Integer page) {
         PostListDto postListDto = new PostListDto();
 
-        List<Post> posts = postRepository.getPosts(searchString, pageSize, page);
-        List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        //the count doesn't depend on the page, so it runs while the page and its tags are read
+        Future<Integer> postsCountQuery = feedQueryExecutor.submit(() -> postsCountStrategy.countPosts(searchString));
+
+        List<Post> posts;
+        try {
+            posts = postRepository.getPosts(searchString,
+                    postsCountStrategy.rowsToFetch(pageSize), (page - 1) * pageSize);
+            fillPosts(posts);
+        } catch (RuntimeException e) {
+            postsCountQuery.cancel(true);
+            throw e;
+        }
 
-        Map<Long, Set<String>> tagsByPostId = tagRepository.getTagsForMultiplePostIds(postIds);
+        Integer postsCount = feedQueryExecutor.join(postsCountQuery);
+        if (postsCount != null) {
+            Integer pages = (postsCount + pageSize - 1) / pageSize;
+
+            postListDto.setHasPrev(pages > 1 && page != 1);
+            postListDto.setHasNext(pages > 1 && page != pages);
+            postListDto.setLastPage(pages);
+        } else {
+            //probe mode: the extra row means there is a next page, the last page is not known exactly
+            boolean hasNext = posts.size() > pageSize;
+            if (hasNext) {
+                posts = new ArrayList<>(posts.subList(0, pageSize));
+            }
+
+            postListDto.setHasPrev(page > 1);
+            postListDto.setHasNext(hasNext);
+            postListDto.setLastPage(hasNext ? page + 1 : page);
+        }
+
+        postListDto.setPosts(posts);
+        //the cursor continues by id: after a page ranked by relevance it would skip or repeat posts
+        if (postListDto.getHasNext() && !posts.isEmpty() && postRepository.isOrderedById(searchString)) {
+            postListDto.setNextCursor(Utility.encodeCursor(posts.getLast().getId()));
+        }
+
+        return postListDto;
+    }
 
-        posts.stream()
-                .map(post -> {
-                    Set<String> tags = tagsByPostId.get(post.getId());
-                    if (tags != null) {
-                        post.setTags(new ArrayList<>(tags));
-                    }
-                    return post;
-                })
-                .toList();
+    // Keyset-пагинация: следующая страница начинается после поста из курсора, без OFFSET и COUNT
+    public PostListDto getPosts(String searchString, Integer pageSize, String cursor) {
+        PostListDto postListDto = new PostListDto();
+        Long afterId = Utility.decodeCursor(cursor);
 
-        Integer postsCount = postRepository.getPostsCount(searchString);
-        Integer pages = (postsCount + pageSize - 1) / pageSize;
+        //one extra row tells whether the next page exists
+        List<Post> posts = postRepository.getPostsAfter(searchString, pageSize + 1, afterId);
+        boolean hasNext = posts.size() > pageSize;
+        if (hasNext) {
+            posts = new ArrayList<>(posts.subList(0, pageSize));
+        }
+        fillPosts(posts);
 
         postListDto.setPosts(posts);
-        postListDto.setHasPrev(pages > 1 && page != 1);
-        postListDto.setHasNext(pages > 1 && page != pages);
-        postListDto.setLastPage(pages);
+        postListDto.setHasPrev(afterId != null);
+        postListDto.setHasNext(hasNext);
+        if (hasNext) {
+            postListDto.setNextCursor(Utility.encodeCursor(posts.getLast().getId()));
+        }
 
         return postListDto;
     }
 
+    @Transactional
     public void deletePost(Long id) {
+        //links are removed explicitly rather than by cascade, so the tag counters follow
+        tagRepository.deleteTagsForPost(id);
         postRepository.deletePost(id);
+        postsCountStrategy.invalidate();
+        postCache.evict(id);
+        likeBuffer.discard(id);
+        imageCache.evict(id);
     }
 
     @Transactional
@@ -110,10 +173,39 @@ public class PostService {
             tagRepository.saveTagsForPost(id, postToUpdate.getTags());
         }
 
+        //title and tags take part in search, so filtered counts may change
+        postsCountStrategy.invalidate();
+        postCache.evict(id);
+
         return postToUpdate;
     }
 
     public void addLike(Long postId) {
+        if (likeBuffer.isEnabled()) {
+            //the row is updated by the next flush, together with the other likes
+            likeBuffer.addLike(postId);
+            return;
+        }
+
         postRepository.addLikeToPost(postId);
+        postCache.evict(postId);
+    }
+
+    private void fillPosts(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return;
+        }
+
+        posts.forEach(likeBuffer::applyPending);
+
+        List<Long> postIds = posts.stream().map(Post::getId).collect(Collectors.toList());
+        Map<Long, Set<String>> tagsByPostId = tagRepository.getTagsForMultiplePostIds(postIds);
+
+        posts.forEach(post -> {
+            Set<String> tags = tagsByPostId.get(post.getId());
+            if (tags != null) {
+                post.setTags(new ArrayList<>(tags));
+            }
+        });
     }
 }
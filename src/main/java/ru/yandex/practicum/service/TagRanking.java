@@ -0,0 +1,69 @@
+package ru.yandex.practicum.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.model.TagStats;
+import ru.yandex.practicum.model.dto.TagListDto;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+import ru.yandex.practicum.utils.Utility;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Top-K тегов по числу постов и по тренду. Снимок неизменяемый и пересобирается по расписанию:
+// читатели берут текущий снимок без блокировок и запросов к базе
+@Slf4j
+@Component
+public class TagRanking {
+    private final TagRepository tagRepository;
+    private final int topK;
+    private final Duration trendHalfLife;
+    private final AtomicReference<TagListDto> snapshot = new AtomicReference<>(new TagListDto(List.of(), List.of()));
+
+    public TagRanking(@Qualifier("JdbcTagRepository") TagRepository tagRepository,
+                      @Value("${blog.tags.top-k:100}") int topK,
+                      @Value("${blog.tags.trend-half-life:7d}") Duration trendHalfLife) {
+        this.tagRepository = tagRepository;
+        this.topK = topK;
+        this.trendHalfLife = trendHalfLife;
+    }
+
+    @PostConstruct
+    @Scheduled(initialDelayString = "${blog.tags.refresh-interval:PT30S}",
+            fixedDelayString = "${blog.tags.refresh-interval:PT30S}")
+    public void refresh() {
+        //trend_log is turned into the decayed count as of now
+        double now = Utility.trendPoint(Instant.now(), trendHalfLife);
+
+        List<TagStats> popular = tagRepository.getTopTagsByPostCount(topK).stream()
+                .map(tag -> toDecayed(tag, now))
+                .toList();
+        List<TagStats> trending = tagRepository.getTopTagsByTrend(topK).stream()
+                .map(tag -> toDecayed(tag, now))
+                .toList();
+
+        snapshot.set(new TagListDto(popular, trending));
+        log.debug("Tag ranking refreshed: {} popular, {} trending", popular.size(), trending.size());
+    }
+
+    public TagListDto getTopTags(int limit) {
+        TagListDto current = snapshot.get();
+        return new TagListDto(head(current.getPopular(), limit), head(current.getTrending(), limit));
+    }
+
+    private static TagStats toDecayed(TagStats tag, double now) {
+        return tag.toBuilder()
+                .trend(tag.getTrend() == null ? 0.0 : Math.exp(tag.getTrend() - now))
+                .build();
+    }
+
+    private static List<TagStats> head(List<TagStats> tags, int limit) {
+        return tags.size() <= limit ? tags : tags.subList(0, Math.max(limit, 0));
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+
+// Исправляет расхождения tag_stats.post_count с фактическим числом постов с тегом
+// (записи в обход приложения, удаление постов каскадом без учёта счётчиков)
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "blog.tags.reconcile.enabled", havingValue = "true", matchIfMissing = true)
+public class TagStatsReconciler {
+    private final TagRepository tagRepository;
+
+    public TagStatsReconciler(@Qualifier("JdbcTagRepository") TagRepository tagRepository) {
+        this.tagRepository = tagRepository;
+    }
+
+    @Scheduled(initialDelayString = "${blog.tags.reconcile.initial-delay:PT1M}",
+            fixedDelayString = "${blog.tags.reconcile.interval:PT1H}")
+    public void reconcile() {
+        int repaired = tagRepository.reconcileTagStats();
+        if (repaired > 0) {
+            log.warn("Repaired post_count for {} tags", repaired);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.service.count;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.interfaces.PostRepository;
+
+import java.time.Duration;
+
+// Оценка количества строк из статистики БД для ленты без фильтра, для поиска — закешированный точный подсчёт
+@Component
+@ConditionalOnProperty(name = "blog.posts.count-strategy", havingValue = "approximate")
+public class ApproximatePostsCountStrategy extends CachedPostsCountStrategy {
+    private final PostRepository postRepository;
+
+    public ApproximatePostsCountStrategy(@Qualifier("JdbcPostRepository") PostRepository postRepository,
+                                         @Value("${blog.posts.count-cache.ttl:5m}") Duration ttl,
+                                         @Value("${blog.posts.count-cache.max-entries:1000}") int maxEntries) {
+        super(postRepository, ttl, maxEntries);
+        this.postRepository = postRepository;
+    }
+
+    @Override
+    public Integer countPosts(String searchString) {
+        if (searchString == null || searchString.isBlank()) {
+            return postRepository.getApproximatePostsCount()
+                    .orElseGet(() -> super.countPosts(searchString));
+        }
+        return super.countPosts(searchString);
+    }
+}
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.service.count;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.interfaces.PostRepository;
+import ru.yandex.practicum.repository.sql.SearchTerms;
+import ru.yandex.practicum.utils.Utility;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Точный COUNT(*), закешированный по нормализованной поисковой строке
+@Component
+@ConditionalOnProperty(name = "blog.posts.count-strategy", havingValue = "cached")
+public class CachedPostsCountStrategy implements PostsCountStrategy {
+    private final PostRepository postRepository;
+    private final Duration ttl;
+    private final int maxEntries;
+
+    private final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public CachedPostsCountStrategy(@Qualifier("JdbcPostRepository") PostRepository postRepository,
+                                    @Value("${blog.posts.count-cache.ttl:5m}") Duration ttl,
+                                    @Value("${blog.posts.count-cache.max-entries:1000}") int maxEntries) {
+        this.postRepository = postRepository;
+        this.ttl = ttl;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public Integer countPosts(String searchString) {
+        String key = normalize(searchString);
+        long currentGeneration = generation.get();
+        long now = System.nanoTime();
+
+        CachedCount cached = counts.get(key);
+        if (cached != null && cached.generation() == currentGeneration && now < cached.expiresAt()) {
+            return cached.count();
+        }
+
+        Integer count = postRepository.getPostsCount(searchString);
+
+        if (counts.size() >= maxEntries) {
+            counts.clear();
+        }
+        //a count computed before an invalidation is stored with the old generation and never served
+        counts.put(key, new CachedCount(count, currentGeneration, now + ttl.toNanos()));
+
+        return count;
+    }
+
+    @Override
+    public void invalidate() {
+        clear();
+        //the counting query may still see the old data until the writing transaction commits
+        Utility.afterCommit(this::clear);
+    }
+
+    private void clear() {
+        generation.incrementAndGet();
+        counts.clear();
+    }
+
+    // Ключ — разобранная поисковая строка, как её выполнит репозиторий: "b  a #y #x" и "b a #x #y #x" —
+    // один и тот же запрос, а "a\tb" и "a b" — разные
+    static String normalize(String searchString) {
+        SearchTerms terms = SearchTerms.parse(searchString);
+        //hashtags are matched with = ANY, so neither their order nor repeats change the result
+        String hashtags = terms.hashtags().stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.joining(" "));
+
+        return terms.words() + "|" + hashtags;
+    }
+
+    private record CachedCount(Integer count, long generation, long expiresAt) {
+    }
+}
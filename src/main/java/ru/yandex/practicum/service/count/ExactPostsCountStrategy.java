@@ -0,0 +1,22 @@
+package ru.yandex.practicum.service.count;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.repository.interfaces.PostRepository;
+
+// COUNT(*) на каждый запрос ленты
+@Component
+@ConditionalOnProperty(name = "blog.posts.count-strategy", havingValue = "exact", matchIfMissing = true)
+public class ExactPostsCountStrategy implements PostsCountStrategy {
+    private final PostRepository postRepository;
+
+    public ExactPostsCountStrategy(@Qualifier("JdbcPostRepository") PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    @Override
+    public Integer countPosts(String searchString) {
+        return postRepository.getPostsCount(searchString);
+    }
+}
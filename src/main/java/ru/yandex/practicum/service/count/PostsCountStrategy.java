@@ -0,0 +1,16 @@
+package ru.yandex.practicum.service.count;
+
+// Стратегия подсчёта постов для пагинации ленты, выбирается свойством blog.posts.count-strategy
+public interface PostsCountStrategy {
+    // Сколько строк запросить для страницы: пробная стратегия берёт на одну строку больше
+    default int rowsToFetch(int pageSize) {
+        return pageSize;
+    }
+
+    // Количество постов по поисковой строке, null — стратегия не считает посты
+    Integer countPosts(String searchString);
+
+    // Вызывается при добавлении, изменении и удалении постов
+    default void invalidate() {
+    }
+}
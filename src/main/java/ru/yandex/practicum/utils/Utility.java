@@ -1,12 +1,75 @@
 package ru.yandex.practicum.utils;
 
-import java.math.BigDecimal;
-import java.util.UUID;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.exception.InvalidCursorException;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
 
 public class Utility {
-    public static Long getIdForEntity() {
-        return new BigDecimal(Math.abs(UUID.randomUUID().getMostSignificantBits()))
-                .setScale(-5, BigDecimal.ROUND_UP)
-                .longValue();
+    //2024-01-01T00:00:00Z
+    private static final long TREND_EPOCH_SECONDS = 1_704_067_200L;
+
+    // Курсор для keyset-пагинации: непрозрачный для клиента токен с id последнего поста страницы
+    public static String encodeCursor(Long lastId) {
+        byte[] bytes = ByteBuffer.allocate(Long.BYTES).putLong(lastId).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // Пустой курсор — первая страница
+    public static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor);
+        }
+    }
+
+    // Выполняет действие после коммита текущей транзакции, а вне транзакции — сразу
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // SHA-256 содержимого изображения: имя файла в хранилище и ETag
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Момент времени в шкале тренда тегов: ln(2^(t / halfLife)), t — секунды от 2024 года.
+    // Затухающий счётчик тега на момент now равен exp(trend_log - trendPoint(now, halfLife))
+    public static double trendPoint(Instant time, Duration halfLife) {
+        return (time.getEpochSecond() - TREND_EPOCH_SECONDS) * Math.log(2) / halfLife.toSeconds();
     }
 }
@@ -0,0 +1,54 @@
+-- Однократная перенумерация id постов и комментариев, выданных до IdGenerator (|старшие биты UUID|,
+-- до 2^63): они не представимы числом в JavaScript и в ленте (ORDER BY id DESC) навсегда оказались бы
+-- выше новых постов. Посты и комментарии получают id 1..N в прежнем порядке — это меньше любого id
+-- IdGenerator, поэтому новые посты сразу идут в ленте первыми.
+-- Выполняется при остановленном приложении, до первого запуска версии с IdGenerator:
+--   psql -v ON_ERROR_STOP=1 -1 -f renumber-legacy-ids-postgresql.sql
+-- Старые ссылки вида /api/posts/{id} после этого перестают работать.
+
+-- внешние ключи на posts (id) на время переноса каскадно обновляют ссылки
+ALTER TABLE comments
+    DROP CONSTRAINT comments_post_id_fkey,
+    ADD CONSTRAINT comments_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id)
+        ON DELETE CASCADE ON UPDATE CASCADE;
+ALTER TABLE post_tag_links
+    DROP CONSTRAINT post_tag_links_post_id_fkey,
+    ADD CONSTRAINT post_tag_links_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id)
+        ON DELETE CASCADE ON UPDATE CASCADE;
+ALTER TABLE post_image
+    DROP CONSTRAINT post_image_post_id_fkey,
+    ADD CONSTRAINT post_image_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id)
+        ON DELETE CASCADE ON UPDATE CASCADE;
+ALTER TABLE post_image_variant
+    DROP CONSTRAINT post_image_variant_post_id_fkey,
+    ADD CONSTRAINT post_image_variant_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id)
+        ON DELETE CASCADE ON UPDATE CASCADE;
+
+-- через отрицательные id: новый id может совпасть со старым id ещё не перенесённой строки
+CREATE TEMP TABLE post_ids ON COMMIT DROP AS
+SELECT id AS old_id, row_number() OVER (ORDER BY id) AS new_id
+FROM posts;
+
+UPDATE posts p SET id = -m.new_id FROM post_ids m WHERE p.id = m.old_id;
+UPDATE posts SET id = -id WHERE id < 0;
+
+CREATE TEMP TABLE comment_ids ON COMMIT DROP AS
+SELECT id AS old_id, row_number() OVER (ORDER BY id) AS new_id
+FROM comments;
+
+UPDATE comments c SET id = -m.new_id FROM comment_ids m WHERE c.id = m.old_id;
+UPDATE comments SET id = -id WHERE id < 0;
+
+-- прежние внешние ключи, как в schema.sql
+ALTER TABLE comments
+    DROP CONSTRAINT comments_post_id_fkey,
+    ADD CONSTRAINT comments_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE;
+ALTER TABLE post_tag_links
+    DROP CONSTRAINT post_tag_links_post_id_fkey,
+    ADD CONSTRAINT post_tag_links_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE;
+ALTER TABLE post_image
+    DROP CONSTRAINT post_image_post_id_fkey,
+    ADD CONSTRAINT post_image_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE;
+ALTER TABLE post_image_variant
+    DROP CONSTRAINT post_image_variant_post_id_fkey,
+    ADD CONSTRAINT post_image_variant_post_id_fkey FOREIGN KEY (post_id) REFERENCES posts (id) ON DELETE CASCADE;
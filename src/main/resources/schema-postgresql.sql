@@ -0,0 +1,14 @@
+-- Полнотекстовый поиск по заголовку и тексту поста (blog.search.mode=fulltext).
+-- Генерируемый столбец пересчитывается самой БД при каждом INSERT/UPDATE поста.
+ALTER TABLE posts
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (
+            setweight(to_tsvector('simple', coalesce(title, '')), 'A') ||
+            setweight(to_tsvector('simple', coalesce(text, '')), 'B')
+            ) STORED;
+
+CREATE INDEX IF NOT EXISTS posts_search_vector_idx ON posts USING GIN (search_vector);
+
+-- Изображения читаются частями через SUBSTRING. Без сжатия TOAST (EXTERNAL) PostgreSQL
+-- читает только страницы нужного фрагмента, а не распаковывает всё значение.
+ALTER TABLE post_image ALTER COLUMN file_data SET STORAGE EXTERNAL;
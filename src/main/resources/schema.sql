@@ -13,13 +13,36 @@ CREATE TABLE IF NOT EXISTS comments
     post_id bigint references posts (id) ON DELETE CASCADE
 );
 
-CREATE TABLE IF NOT EXISTS post_tags
+-- количество комментариев поста, поддерживается при создании и удалении комментария.
+-- Только что добавленный столбец пуст (NULL) и один раз заполняется по comments, при следующих
+-- запусках пустых значений нет и UPDATE ничего не меняет
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS comments_count INTEGER;
+UPDATE posts p
+SET comments_count = (SELECT count(*) FROM comments c WHERE c.post_id = p.id)
+WHERE p.comments_count IS NULL;
+ALTER TABLE posts ALTER COLUMN comments_count SET DEFAULT 0;
+ALTER TABLE posts ALTER COLUMN comments_count SET NOT NULL;
+
+CREATE INDEX IF NOT EXISTS comments_post_id_idx ON comments (post_id);
+
+CREATE TABLE IF NOT EXISTS tags
+(
+    id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(20) NOT NULL UNIQUE
+);
+
+-- первичный ключ (tag_id, post_id) покрывает фильтр по хэштегам, индекс (post_id, tag_id) — теги поста
+CREATE TABLE IF NOT EXISTS post_tag_links
 (
-    record_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    post_id   BIGINT references posts (id) ON DELETE CASCADE ,
-    tag       varchar(20)
+    tag_id  INTEGER NOT NULL REFERENCES tags (id),
+    post_id BIGINT  NOT NULL REFERENCES posts (id) ON DELETE CASCADE,
+    PRIMARY KEY (tag_id, post_id)
 );
 
+CREATE INDEX IF NOT EXISTS post_tag_links_post_id_idx ON post_tag_links (post_id, tag_id);
+
+-- теги из прежней таблицы post_tags (post_id, tag) переносит JdbcTagRepository.migrateLegacyTags при запуске
+
 CREATE TABLE IF NOT EXISTS post_image
 (
     post_id      BIGINT PRIMARY KEY REFERENCES posts (id) ON DELETE CASCADE,
@@ -29,3 +52,45 @@ CREATE TABLE IF NOT EXISTS post_image
     file_data    BYTEA        NOT NULL
 );
 
+-- Содержимое хранится либо в file_data (JdbcImageRepository), либо в файле с именем storage_key
+-- (FileSystemImageRepository, SHA-256 содержимого)
+ALTER TABLE post_image ADD COLUMN IF NOT EXISTS storage_key VARCHAR(64);
+ALTER TABLE post_image ALTER COLUMN file_data DROP NOT NULL;
+
+-- ETag (SHA-256 содержимого) и Last-Modified, заполняются при загрузке
+ALTER TABLE post_image ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE post_image ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITH TIME ZONE;
+
+-- Уменьшенные копии изображения поста (ширина width), source_hash — content_hash оригинала
+CREATE TABLE IF NOT EXISTS post_image_variant
+(
+    post_id      BIGINT                   NOT NULL REFERENCES posts (id) ON DELETE CASCADE,
+    width        INTEGER                  NOT NULL,
+    content_type VARCHAR(100)             NOT NULL,
+    file_size    BIGINT                   NOT NULL,
+    file_data    BYTEA                    NOT NULL,
+    content_hash VARCHAR(64)              NOT NULL,
+    source_hash  VARCHAR(64)              NOT NULL,
+    updated_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    PRIMARY KEY (post_id, width)
+);
+
+
+-- Счётчики тегов для облака и «популярных тегов»: меняются при сохранении тегов поста и удалении поста.
+-- trend_log — логарифм суммы 2^(t / half-life) по моментам t добавления тега к посту: порядок по нему
+-- совпадает с порядком по затухающему счётчику, а значения не переполняются. NULL — тег ещё не добавлялся
+CREATE TABLE IF NOT EXISTS tag_stats
+(
+    tag_id     INTEGER PRIMARY KEY REFERENCES tags (id) ON DELETE CASCADE,
+    post_count INTEGER NOT NULL DEFAULT 0,
+    trend_log  DOUBLE PRECISION
+);
+
+CREATE INDEX IF NOT EXISTS tag_stats_post_count_idx ON tag_stats (post_count DESC);
+CREATE INDEX IF NOT EXISTS tag_stats_trend_log_idx ON tag_stats (trend_log DESC);
+
+INSERT INTO tag_stats (tag_id, post_count)
+SELECT l.tag_id, count(*)
+FROM post_tag_links l
+WHERE NOT EXISTS (SELECT 1 FROM tag_stats s WHERE s.tag_id = l.tag_id)
+GROUP BY l.tag_id;
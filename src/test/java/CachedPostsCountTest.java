@@ -0,0 +1,87 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.posts.count-strategy=cached")
+@AutoConfigureMockMvc
+public class CachedPostsCountTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void countIsCachedUntilPostIsAdded() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, 'Post', 'Text', 0)", i);
+        }
+
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastPage").value(2));
+
+        //written around the service: the cached count is served
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (5, 'Post', 'Text', 0)");
+
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastPage").value(2));
+
+        //written through the service: the cache is invalidated
+        mockMvc.perform(post("/api/posts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                    "title": "Created Post",
+                                    "text": "Created Post text",
+                                    "tags": []
+                                }
+                                """))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastPage").value(3));
+    }
+
+    @Test
+    void searchesParsedDifferentlyDoNotShareACount() throws Exception {
+        for (int i = 1; i <= 4; i++) {
+            jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, 'a b', 'Text', 0)", i);
+        }
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (5, 'a\tb', 'Text', 0)");
+
+        mockMvc.perform(get("/api/posts").param("search", "a b").param("pageNumber", "1").param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastPage").value(4));
+
+        //a tab is not a separator for the query, so it is another search
+        mockMvc.perform(get("/api/posts").param("search", "a\tb").param("pageNumber", "1").param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts[0].id").value(5))
+                .andExpect(jsonPath("$.lastPage").value(1));
+    }
+}
@@ -0,0 +1,59 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.BackendAppApplication;
+
+import javax.sql.DataSource;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.comments.reconcile.enabled=false")
+public class CommentsCountMigrationTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void addedColumnIsFilledOnceFromComments() {
+        //a database from before the column
+        jdbcTemplate.execute("ALTER TABLE posts DROP COLUMN comments_count");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (2, 'Post', 'Text', 0)");
+        jdbcTemplate.update("INSERT INTO comments (id, text, post_id) VALUES (1, 'First', 1), (2, 'Second', 1)");
+
+        runSchema();
+
+        Assertions.assertEquals(2, commentsCount(1L));
+        Assertions.assertEquals(0, commentsCount(2L));
+
+        //later starts leave the maintained counter alone
+        jdbcTemplate.update("UPDATE posts SET comments_count = 5 WHERE id = 1");
+        runSchema();
+        Assertions.assertEquals(5, commentsCount(1L));
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (3, 'Post', 'Text', 0)");
+        Assertions.assertEquals(0, commentsCount(3L));
+    }
+
+    private void runSchema() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+    }
+
+    private int commentsCount(Long postId) {
+        return jdbcTemplate.queryForObject("SELECT comments_count FROM posts WHERE id = ?", Integer.class, postId);
+    }
+}
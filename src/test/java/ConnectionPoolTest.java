@@ -0,0 +1,113 @@
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.PostService;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+@AutoConfigureMockMvc
+public class ConnectionPoolTest {
+    private static final int REQUESTS = 500;
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PostService postService;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        for (int i = 1; i <= 20; i++) {
+            jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, 'Pool post', 'Text', 0)", i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void feedRequestsReuseBoundedPool() throws Exception {
+        Assertions.assertInstanceOf(HikariDataSource.class, dataSource);
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+
+        for (int i = 0; i < REQUESTS; i++) {
+            mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=5"))
+                    .andExpect(status().isOk());
+        }
+
+        Timer acquire = meterRegistry.get("hikaricp.connections.acquire")
+                .tag("pool", hikari.getPoolName())
+                .timer();
+        Timer creation = meterRegistry.get("hikaricp.connections.creation")
+                .tag("pool", hikari.getPoolName())
+                .timer();
+
+        // каждый запрос ленты берёт соединение из пула, но физических соединений не больше размера пула
+        Assertions.assertTrue(acquire.count() >= REQUESTS);
+        Assertions.assertTrue(creation.count() <= hikari.getMaximumPoolSize());
+        Assertions.assertTrue(hikari.getHikariPoolMXBean().getTotalConnections() <= hikari.getMaximumPoolSize());
+    }
+
+    @Test
+    void concurrentFeedWaitsForPooledConnectionsWithinTimeout() throws Exception {
+        HikariDataSource hikari = (HikariDataSource) dataSource;
+        Timer acquire = meterRegistry.get("hikaricp.connections.acquire")
+                .tag("pool", hikari.getPoolName())
+                .timer();
+        Timer creation = meterRegistry.get("hikaricp.connections.creation")
+                .tag("pool", hikari.getPoolName())
+                .timer();
+        long acquiredBefore = acquire.count();
+        long createdBefore = creation.count();
+
+        //more concurrent feeds than connections: the extra ones wait in the pool
+        int threads = hikari.getMaximumPoolSize() * 2;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                futures.add(executor.submit(() -> postService.getPosts("", 5, 1)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //DriverManager would open a physical connection per query; the pool reuses at most its size
+        Assertions.assertTrue(acquire.count() - acquiredBefore >= REQUESTS);
+        Assertions.assertTrue(creation.count() - createdBefore <= hikari.getMaximumPoolSize());
+        //a feed waits for a connection no longer than connection-timeout, then fails instead of queueing
+        Assertions.assertTrue(acquire.max(TimeUnit.MILLISECONDS) < hikari.getConnectionTimeout(),
+                "longest acquisition " + acquire.max(TimeUnit.MILLISECONDS) + " ms");
+    }
+}
@@ -0,0 +1,145 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.model.dto.PostListDto;
+import ru.yandex.practicum.service.PostService;
+import ru.yandex.practicum.service.count.PostsCountStrategy;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.posts.parallel-queries.timeout=1s")
+@Import(FeedParallelQueriesTest.SlowCountConfiguration.class)
+public class FeedParallelQueriesTest {
+    //below blog.posts.parallel-queries.timeout
+    private static final long MEETING_TIMEOUT_MS = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private ControlledCountStrategy countStrategy;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        for (int i = 1; i <= 5; i++) {
+            jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, 'Post', 'Text', 0)", i);
+        }
+        countStrategy.delayMs = 0;
+        countStrategy.failure = null;
+        countStrategy.meeting = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void countRunsConcurrentlyWithPageQuery() {
+        //the count and the page query wait for each other: run one after the other, both time out
+        CyclicBarrier meeting = new CyclicBarrier(2);
+        countStrategy.meeting = meeting;
+
+        PostListDto posts = postService.getPosts("", 2, 1);
+
+        Assertions.assertFalse(meeting.isBroken());
+        Assertions.assertEquals(2, posts.getPosts().size());
+        Assertions.assertEquals(3, posts.getLastPage());
+
+        Thread countThread = countStrategy.thread.get();
+        Assertions.assertNotSame(Thread.currentThread(), countThread);
+        Assertions.assertTrue(countThread.isVirtual());
+    }
+
+    @Test
+    void countFailureIsRethrownUnwrapped() {
+        countStrategy.failure = new IllegalStateException("count failed");
+
+        IllegalStateException thrown = Assertions.assertThrows(IllegalStateException.class,
+                () -> postService.getPosts("", 2, 1));
+        Assertions.assertEquals("count failed", thrown.getMessage());
+    }
+
+    @Test
+    void slowCountTimesOut() {
+        countStrategy.delayMs = 3_000;
+
+        Assertions.assertThrows(QueryTimeoutException.class, () -> postService.getPosts("", 2, 1));
+    }
+
+    static class ControlledCountStrategy implements PostsCountStrategy {
+        private final JdbcTemplate jdbcTemplate;
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        volatile long delayMs;
+        volatile RuntimeException failure;
+        volatile CyclicBarrier meeting;
+
+        ControlledCountStrategy(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        //asked on the request thread right before the page query
+        @Override
+        public int rowsToFetch(int pageSize) {
+            meet();
+            return pageSize;
+        }
+
+        @Override
+        public Integer countPosts(String searchString) {
+            thread.set(Thread.currentThread());
+            meet();
+            try {
+                //stands in for a slow COUNT(*) over a large table
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Integer.class);
+        }
+
+        private void meet() {
+            CyclicBarrier barrier = meeting;
+            if (barrier == null) {
+                return;
+            }
+            try {
+                barrier.await(MEETING_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (BrokenBarrierException | TimeoutException e) {
+                throw new IllegalStateException("The count and the page query did not run at the same time", e);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class SlowCountConfiguration {
+        @Bean
+        @Primary
+        ControlledCountStrategy controlledCountStrategy(JdbcTemplate jdbcTemplate) {
+            return new ControlledCountStrategy(jdbcTemplate);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+@AutoConfigureMockMvc
+public class FeedSqlCacheTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() throws Exception {
+        jdbcTemplate.execute("DELETE FROM posts");
+
+        String[] postsJson = {
+                """
+                        {"title": "First", "text": "Text", "tags": ["a", "b"]}
+                """,
+                """
+                        {"title": "Second", "text": "Text", "tags": ["c"]}
+                """,
+                """
+                        {"title": "Third", "text": "Text", "tags": ["d"]}
+                """
+        };
+        for (String postJson : postsJson) {
+            mockMvc.perform(post("/api/posts")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(postJson))
+                    .andExpect(status().isOk());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void hashtagCountDoesNotChangeStatement() throws Exception {
+        mockMvc.perform(get("/api/posts").param("search", "#a").param("pageNumber", "1").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(1)))
+                .andExpect(jsonPath("$.lastPage").value(1));
+
+        double misses = cacheCount("miss");
+        double hits = cacheCount("hit");
+
+        //hashtags are bound as one array parameter: the same statements for any number of them
+        mockMvc.perform(get("/api/posts").param("search", "#a #c").param("pageNumber", "1").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(2)));
+        mockMvc.perform(get("/api/posts").param("search", "#a #c #d #missing").param("pageNumber", "1").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(3)))
+                .andExpect(jsonPath("$.posts[0].tags", hasSize(1)));
+
+        Assertions.assertEquals(misses, cacheCount("miss"));
+        Assertions.assertTrue(cacheCount("hit") >= hits + 2);
+    }
+
+    @Test
+    void wordsAndHashtagsTogether() throws Exception {
+        mockMvc.perform(get("/api/posts").param("search", "Fir #a #c").param("pageNumber", "1").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(1)))
+                .andExpect(jsonPath("$.posts[0].title").value("First"));
+
+        mockMvc.perform(get("/api/posts").param("search", "#b").param("pageNumber", "2").param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(0)));
+    }
+
+    private double cacheCount(String result) {
+        return meterRegistry.get("blog.posts.sql-cache").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.FileSystemUtils;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.ImageService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.images.repository=FileSystemImageRepository")
+@AutoConfigureMockMvc
+public class FileSystemImageTest {
+    private static Path storageDir;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ImageService imageService;
+
+    @DynamicPropertySource
+    static void storage(DynamicPropertyRegistry registry) throws IOException {
+        storageDir = Files.createTempDirectory("blog-images");
+        registry.add("blog.images.storage-dir", storageDir::toString);
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        FileSystemUtils.deleteRecursively(storageDir);
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (2, 'Post', 'Text', 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void sameContentIsStoredOnceOutsideTheDatabase() throws Exception {
+        byte[] content = "png bytes".getBytes();
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", content));
+        imageService.setImageForPost(2L, new MockMultipartFile("image", "b.png", "image/png", content));
+
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM post_image WHERE file_data IS NOT NULL", Integer.class));
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(DISTINCT storage_key) FROM post_image", Integer.class));
+        Assertions.assertEquals(1, storedFiles());
+
+        MvcResult result = mockMvc.perform(get("/api/posts/2/image"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", content.length))
+                .andReturn();
+        Assertions.assertArrayEquals(content, result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void fileIsHandedToContainerWhenSendfileIsSupported() throws Exception {
+        byte[] content = "sendfile bytes".getBytes();
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", content));
+
+        MvcResult result = mockMvc.perform(get("/api/posts/1/image")
+                        .requestAttr("org.apache.tomcat.sendfile.support", Boolean.TRUE))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", content.length))
+                .andReturn();
+
+        //the body is written by the container from the file, not by the application
+        Assertions.assertEquals(0, result.getResponse().getContentAsByteArray().length);
+        String fileName = (String) result.getRequest().getAttribute("org.apache.tomcat.sendfile.filename");
+        Assertions.assertArrayEquals(content, Files.readAllBytes(Path.of(fileName)));
+        Assertions.assertEquals((long) content.length, result.getRequest().getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    private long storedFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(storageDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.IdGenerator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+public class IdGeneratorTest {
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+    //Number.MAX_SAFE_INTEGER
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1;
+
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Test
+    void idsAreUniqueAcrossThreadsAndIncreasingWithinThread() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    long previous = 0;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = idGenerator.nextId();
+                        Assertions.assertTrue(id > previous, "ids must grow within a thread");
+                        Assertions.assertTrue(id > 0 && id <= MAX_SAFE_INTEGER, "id must fit into a JS number");
+                        Assertions.assertTrue(ids.add(id), "duplicate id " + id);
+                        previous = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        Assertions.assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    void nodesProduceDisjointIds() {
+        IdGenerator first = new IdGenerator(1);
+        IdGenerator second = new IdGenerator(2);
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertTrue(ids.add(first.nextId()));
+            Assertions.assertTrue(ids.add(second.nextId()));
+        }
+    }
+
+    @Test
+    void nodeOutOfRangeIsRejected() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdGenerator(16));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new IdGenerator(-1));
+    }
+}
@@ -0,0 +1,128 @@
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.ImageCache;
+import ru.yandex.practicum.service.ImageService;
+
+import java.util.Arrays;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = {
+        "blog.images.cache.enabled=true",
+        "blog.images.cache.max-size=3KB",
+        "blog.images.cache.max-entry-size=2KB"
+})
+@AutoConfigureMockMvc
+public class ImageCacheTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private ImageCache imageCache;
+
+    @BeforeEach
+    void setup() {
+        //a test that fills the cache must not decide admission for the next one
+        imageCache.clear();
+        jdbcTemplate.execute("DELETE FROM posts");
+        for (long id = 1; id <= 3; id++) {
+            jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, 'Post', 'Text', 0)", id);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void imageIsServedFromCacheUntilReplaced() throws Exception {
+        byte[] image = image(1000, 1);
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", image));
+
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(image));
+
+        //not read from the DB any more
+        jdbcTemplate.update("UPDATE post_image SET file_data = NULL WHERE post_id = 1");
+        double hitsBefore = gets("hit");
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(image));
+        Assertions.assertEquals(hitsBefore + 1, gets("hit"));
+
+        byte[] replacement = image(500, 2);
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "b.png", "image/png", replacement));
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(replacement));
+    }
+
+    @Test
+    void cacheIsBoundedByBytes() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            imageService.setImageForPost(id, new MockMultipartFile("image", "a.png", "image/png", image(1500, (int) id)));
+            mockMvc.perform(get("/api/posts/" + id + "/image"))
+                    .andExpect(status().isOk());
+        }
+
+        //eviction runs on Caffeine's maintenance executor
+        for (int i = 0; i < 50 && evictedBytes() == 0; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertTrue(evictedBytes() >= 1500);
+    }
+
+    @Test
+    void placeholderIsServedWithoutImage() throws Exception {
+        byte[] first = mockMvc.perform(get("/api/posts/2/image"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] second = mockMvc.perform(get("/api/posts/3/image"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Assertions.assertTrue(first.length > 0);
+        Assertions.assertArrayEquals(first, second);
+    }
+
+    private double gets(String result) {
+        FunctionCounter counter = meterRegistry.find("cache.gets")
+                .tag("cache", "images")
+                .tag("result", result)
+                .functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private double evictedBytes() {
+        FunctionCounter counter = meterRegistry.find("cache.eviction.weight")
+                .tag("cache", "images")
+                .functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static byte[] image(int size, int fill) {
+        byte[] image = new byte[size];
+        Arrays.fill(image, (byte) fill);
+        return image;
+    }
+}
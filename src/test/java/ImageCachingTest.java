@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.ImageService;
+
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+@AutoConfigureMockMvc
+public class ImageCachingTest {
+    private static final byte[] IMAGE = "cached png bytes".getBytes();
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ImageService imageService;
+
+    private String eTag;
+
+    @BeforeEach
+    void setup() throws Exception {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", IMAGE));
+
+        eTag = "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(IMAGE)) + "\"";
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void imageIsServedWithValidatorsAndStoredContentType() throws Exception {
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(header().string("Cache-Control", containsString("max-age=")))
+                .andExpect(content().contentType("image/png"))
+                .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    void matchingETagIsAnsweredWithoutContent() throws Exception {
+        //the content can't be read any more: a 304 must come from the metadata alone
+        jdbcTemplate.update("UPDATE post_image SET file_data = NULL WHERE post_id = 1");
+
+        mockMvc.perform(get("/api/posts/1/image").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void replacedImageGetsNewETag() throws Exception {
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "b.png", "image/png", "other".getBytes()));
+
+        mockMvc.perform(get("/api/posts/1/image").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("other".getBytes()));
+    }
+
+    @Test
+    void placeholderIsNotCachedLongTerm() throws Exception {
+        jdbcTemplate.execute("DELETE FROM post_image");
+
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().contentType("image/jpeg"));
+    }
+}
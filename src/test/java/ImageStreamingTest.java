@@ -0,0 +1,148 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.configuration.DatabaseDialect;
+import ru.yandex.practicum.model.PostImage;
+import ru.yandex.practicum.repository.implementations.JdbcImageRepository;
+import ru.yandex.practicum.service.ImageService;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+@AutoConfigureMockMvc
+public class ImageStreamingTest {
+    //not a multiple of the 64KB read chunk
+    private static final int IMAGE_SIZE = 8 * 1024 * 1024 + 123;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private DataSource dataSource;
+
+    private byte[] image;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+
+        image = new byte[IMAGE_SIZE];
+        new Random(42).nextBytes(image);
+        jdbcTemplate.update("""
+                INSERT INTO post_image (post_id, file_name, content_type, file_size, file_data)
+                VALUES (1, 'big.png', 'image/png', ?, ?)
+                """, IMAGE_SIZE, image);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void imageIsStreamedWithContentLength() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk())
+                .andExpect(header().longValue("Content-Length", IMAGE_SIZE))
+                .andReturn();
+
+        Assertions.assertArrayEquals(image, result.getResponse().getContentAsByteArray());
+    }
+
+    @Test
+    void imageIsReadInBoundedChunks() throws Exception {
+        Resource resource = imageService.getImageForPost(1L);
+        Assertions.assertEquals(IMAGE_SIZE, resource.contentLength());
+
+        byte[] buffer = new byte[IMAGE_SIZE];
+        int total = 0;
+        int reads = 0;
+        try (InputStream in = resource.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer, total, buffer.length - total)) > 0) {
+                //never more than one chunk is held, whatever the image size
+                Assertions.assertTrue(read <= CHUNK_SIZE);
+                total += read;
+                reads++;
+            }
+        }
+
+        Assertions.assertEquals(IMAGE_SIZE, total);
+        Assertions.assertEquals((IMAGE_SIZE + CHUNK_SIZE - 1) / CHUNK_SIZE, reads);
+        Assertions.assertArrayEquals(image, buffer);
+    }
+
+    @Test
+    void replacedImageFailsTheRead() throws Exception {
+        Resource resource = imageService.getImageForPost(1L);
+
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (InputStream in = resource.getInputStream()) {
+            Assertions.assertEquals(CHUNK_SIZE, in.read(buffer));
+
+            //the rest of the response must not come from another image
+            jdbcTemplate.update("UPDATE post_image SET file_data = ?, content_hash = 'other' WHERE post_id = 1",
+                    (Object) new byte[IMAGE_SIZE]);
+            Assertions.assertThrows(IOException.class, () -> in.read(buffer));
+        }
+    }
+
+    @Test
+    void chunkPositionIsBoundAsInteger() throws Exception {
+        //H2 accepts a BIGINT position, PostgreSQL has no substring(bytea, bigint, integer)
+        List<Object> positions = new ArrayList<>();
+        NamedParameterJdbcTemplate recordingTemplate = new NamedParameterJdbcTemplate(dataSource) {
+            @Override
+            public <T> T queryForObject(String sql, Map<String, ?> paramMap, Class<T> requiredType) {
+                if (paramMap.containsKey("from")) {
+                    positions.add(paramMap.get("from"));
+                }
+                return super.queryForObject(sql, paramMap, requiredType);
+            }
+        };
+        JdbcImageRepository repository = new JdbcImageRepository(recordingTemplate, DatabaseDialect.H2,
+                DataSize.ofBytes(CHUNK_SIZE));
+
+        PostImage postImage = repository.getPostImageByPostId(1L).orElseThrow();
+        try (InputStream in = repository.getPostImageContent(postImage).getInputStream()) {
+            Assertions.assertArrayEquals(image, in.readAllBytes());
+        }
+
+        Assertions.assertEquals((IMAGE_SIZE + CHUNK_SIZE - 1) / CHUNK_SIZE, positions.size());
+        positions.forEach(position -> Assertions.assertInstanceOf(Integer.class, position));
+    }
+
+    @Test
+    void placeholderIsReturnedWithoutImage() throws Exception {
+        jdbcTemplate.execute("DELETE FROM post_image");
+
+        mockMvc.perform(get("/api/posts/1/image"))
+                .andExpect(status().isOk());
+    }
+}
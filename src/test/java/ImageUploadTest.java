@@ -0,0 +1,111 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.ImageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+public class ImageUploadTest {
+    private static final int IMAGE_SIZE = 50 * 1024 * 1024;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ImageService imageService;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void largeUploadIsStreamedWithoutGetBytes() throws Exception {
+        imageService.setImageForPost(1L, new GeneratedMultipartFile(IMAGE_SIZE));
+
+        Map<String, Object> stored = jdbcTemplate.queryForMap(
+                "SELECT file_size, OCTET_LENGTH(file_data) AS data_size FROM post_image WHERE post_id = 1");
+        Assertions.assertEquals((long) IMAGE_SIZE, ((Number) stored.get("file_size")).longValue());
+        Assertions.assertEquals((long) IMAGE_SIZE, ((Number) stored.get("data_size")).longValue());
+
+        //the last bytes of the generated sequence made it to the DB
+        byte[] tail = jdbcTemplate.queryForObject(
+                "SELECT SUBSTRING(file_data FROM ? FOR 4) FROM post_image WHERE post_id = 1",
+                byte[].class, IMAGE_SIZE - 3);
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertEquals((byte) (IMAGE_SIZE - 4 + i), tail[i]);
+        }
+    }
+
+    @Test
+    void uploadReplacesExistingImage() throws Exception {
+        imageService.setImageForPost(1L, new GeneratedMultipartFile(1024));
+        imageService.setImageForPost(1L, new GeneratedMultipartFile(2048));
+
+        Assertions.assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post_image", Integer.class));
+        Assertions.assertEquals(2048, imageService.getImageForPost(1L).contentLength());
+    }
+
+    // Содержимое генерируется при чтении и нигде не хранится целиком; getBytes() запрещён
+    private static class GeneratedMultipartFile extends MockMultipartFile {
+        private final long size;
+
+        GeneratedMultipartFile(long size) {
+            super("image", "generated.png", "image/png", new byte[0]);
+            this.size = size;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new AssertionError("upload must not be buffered with getBytes()");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new InputStream() {
+                private long position;
+
+                @Override
+                public int read() {
+                    return position < size ? (int) (position++ & 0xFF) : -1;
+                }
+
+                @Override
+                public int read(byte[] buffer, int off, int len) throws IOException {
+                    if (position >= size) {
+                        return -1;
+                    }
+                    int count = (int) Math.min(len, size - position);
+                    for (int i = 0; i < count; i++) {
+                        buffer[off + i] = (byte) (position++ & 0xFF);
+                    }
+                    return count;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.ImageService;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+@AutoConfigureMockMvc
+public class ImageVariantTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ImageService imageService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void resizedVariantsAreServedBySize() throws Exception {
+        byte[] original = png(1600, 900);
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", original));
+        awaitVariants(1L, 2);
+
+        byte[] thumbnail = mockMvc.perform(get("/api/posts/1/image").param("size", "150"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("max-age")))
+                .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(200, ImageIO.read(new ByteArrayInputStream(thumbnail)).getWidth());
+        Assertions.assertTrue(thumbnail.length < original.length);
+
+        byte[] medium = mockMvc.perform(get("/api/posts/1/image").param("size", "800"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        Assertions.assertEquals(800, ImageIO.read(new ByteArrayInputStream(medium)).getWidth());
+
+        //wider than every variant
+        mockMvc.perform(get("/api/posts/1/image").param("size", "1200"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", containsString("max-age")))
+                .andExpect(content().bytes(original));
+
+        Assertions.assertNotNull(meterRegistry.find("blog.images.variants.queue").gauge());
+    }
+
+    @Test
+    void smallImageIsNotUpscaled() throws Exception {
+        byte[] original = png(300, 300);
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", original));
+        awaitVariants(1L, 1);
+
+        //the service cannot tell a pending variant from one never generated, so the original is revalidated
+        mockMvc.perform(get("/api/posts/1/image").param("size", "800"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().bytes(original));
+    }
+
+    @Test
+    void newUploadDropsOldVariants() throws Exception {
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "a.png", "image/png", png(1000, 1000)));
+        awaitVariants(1L, 2);
+
+        byte[] replacement = png(100, 100);
+        imageService.setImageForPost(1L, new MockMultipartFile("image", "b.png", "image/png", replacement));
+
+        mockMvc.perform(get("/api/posts/1/image").param("size", "200"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(replacement));
+    }
+
+    private void awaitVariants(Long postId, int expected) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Integer variants = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM post_image_variant WHERE post_id = ?", Integer.class, postId);
+            if (variants >= expected) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        Assertions.fail("variants were not generated");
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.BLUE);
+        graphics.fillOval(width / 4, height / 4, width / 2, height / 2);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
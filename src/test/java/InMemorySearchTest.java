@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.model.Post;
+import tools.jackson.databind.ObjectMapper;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.search.mode=memory")
+@AutoConfigureMockMvc
+public class InMemorySearchTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void searchMatchesWordsFromTitleAndText() throws Exception {
+        createPost("Spring Boot notes", "Connection pool tuning with Hikari");
+        createPost("Travel diary", "Mountains and lakes");
+
+        //words are not a contiguous phrase and come from both title and text
+        mockMvc.perform(get("/api/posts?search=hikari spring&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(1)))
+                .andExpect(jsonPath("$.posts[0].title").value("Spring Boot notes"))
+                .andExpect(jsonPath("$.lastPage").value(1));
+
+        mockMvc.perform(get("/api/posts?search=lakes&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(1)))
+                .andExpect(jsonPath("$.posts[0].title").value("Travel diary"));
+
+        mockMvc.perform(get("/api/posts?search=kotlin&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(0)));
+    }
+
+    @Test
+    void updatedPostIsReindexed() throws Exception {
+        Post post = createPost("Draft", "Old words");
+
+        mockMvc.perform(put("/api/posts/" + post.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("""
+                                {
+                                    "id": %d,
+                                    "title": "Draft",
+                                    "text": "Fresh words",
+                                    "tags": [],
+                                    "likesCount": 0
+                                }
+                                """, post.getId())))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts?search=old&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(0)));
+
+        mockMvc.perform(get("/api/posts?search=fresh&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(1)));
+    }
+
+    private Post createPost(String title, String text) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/posts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(String.format("""
+                                {
+                                    "title": "%s",
+                                    "text": "%s",
+                                    "tags": []
+                                }
+                                """, title, text)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        return new ObjectMapper().readValue(result.getResponse().getContentAsString(), Post.class);
+    }
+}
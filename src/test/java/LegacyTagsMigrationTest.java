@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.repository.implementations.JdbcTagRepository;
+
+import java.util.List;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+public class LegacyTagsMigrationTest {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JdbcTagRepository tagRepository;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.execute("DELETE FROM tag_stats");
+        jdbcTemplate.execute("DELETE FROM tags");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS post_tags");
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.execute("DELETE FROM tag_stats");
+        jdbcTemplate.execute("DELETE FROM tags");
+    }
+
+    @Test
+    void legacyTableIsMigratedOnceAndDropped() {
+        Assertions.assertEquals(0, legacyTables());
+
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+        jdbcTemplate.execute("""
+                CREATE TABLE post_tags
+                (
+                    record_id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                    post_id   BIGINT references posts (id) ON DELETE CASCADE,
+                    tag       varchar(20)
+                )""");
+        jdbcTemplate.update("INSERT INTO post_tags (post_id, tag) VALUES (1, 'java'), (1, 'spring'), (1, 'java')");
+
+        tagRepository.migrateLegacyTags();
+
+        Assertions.assertEquals(0, legacyTables());
+        Assertions.assertEquals(List.of("java", "spring"), tagRepository.getTagsForPost(1L).stream().sorted().toList());
+        Assertions.assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM tag_stats WHERE post_count = 1", Integer.class));
+
+        //nothing left to migrate on the next start
+        tagRepository.migrateLegacyTags();
+        Assertions.assertEquals(2, tagRepository.getTagsForPost(1L).size());
+    }
+
+    private int legacyTables() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM information_schema.tables WHERE LOWER(table_name) = 'post_tags'", Integer.class);
+    }
+}
@@ -0,0 +1,164 @@
+import io.micrometer.core.instrument.MeterRegistry;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.LikeBuffer;
+import ru.yandex.practicum.service.PostService;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = {
+        "blog.likes.write-behind.enabled=true",
+        //flushed by the test itself
+        "blog.likes.write-behind.flush-interval=PT1H"
+})
+@AutoConfigureMockMvc
+public class LikeWriteBehindTest {
+    private static final int THREADS = 8;
+    private static final int LIKES_PER_THREAD = 250;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PostService postService;
+    @Autowired
+    private LikeBuffer likeBuffer;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Hot post', 'Text', 0)");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (2, 'Other post', 'Text', 3)");
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS posts_updates AFTER UPDATE ON posts FOR EACH ROW CALL \""
+                + RowUpdateCounter.class.getName() + "\"");
+        RowUpdateCounter.UPDATES.set(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        likeBuffer.flush();
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS posts_updates");
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void concurrentLikesAreFlushedInOneBatch() throws Exception {
+        likeConcurrently(1L, 0);
+        likeBuffer.addLike(2L);
+
+        //not written yet, but already visible through the API
+        Assertions.assertEquals(0, likesInDb(1L));
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(THREADS * LIKES_PER_THREAD));
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts[0].likesCount").value(4))
+                .andExpect(jsonPath("$.posts[1].likesCount").value(THREADS * LIKES_PER_THREAD));
+
+        double flushesBefore = meterRegistry.counter("blog.likes.flushes").count();
+        likeBuffer.flush();
+
+        Assertions.assertEquals(flushesBefore + 1, meterRegistry.counter("blog.likes.flushes").count());
+        //one row update per post, not one per like
+        Assertions.assertEquals(2, RowUpdateCounter.UPDATES.get());
+        Assertions.assertEquals(THREADS * LIKES_PER_THREAD, likesInDb(1L));
+        Assertions.assertEquals(4, likesInDb(2L));
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(THREADS * LIKES_PER_THREAD));
+    }
+
+    @Test
+    void likesDuringFlushesAreNeitherLostNorCountedTwice() throws Exception {
+        //every thread also flushes, so drains race with the other threads' likes
+        likeConcurrently(1L, 25);
+        likeBuffer.flush();
+
+        Assertions.assertEquals(THREADS * LIKES_PER_THREAD, likesInDb(1L));
+        Assertions.assertTrue(RowUpdateCounter.UPDATES.get() > 1);
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likesCount").value(THREADS * LIKES_PER_THREAD));
+    }
+
+    @Test
+    void pendingLikesOfDeletedPostAreDiscarded() throws Exception {
+        postService.addLike(2L);
+        postService.deletePost(2L);
+
+        likeBuffer.flush();
+
+        mockMvc.perform(get("/api/posts/2"))
+                .andExpect(status().isNotFound());
+    }
+
+    private void likeConcurrently(Long postId, int flushEvery) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 1; j <= LIKES_PER_THREAD; j++) {
+                        postService.addLike(postId);
+                        if (flushEvery > 0 && j % flushEvery == 0) {
+                            likeBuffer.flush();
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private int likesInDb(Long postId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Integer.class, postId);
+    }
+
+    // Считает строки posts, изменённые UPDATE
+    public static class RowUpdateCounter implements Trigger {
+        static final AtomicInteger UPDATES = new AtomicInteger();
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) {
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) {
+            UPDATES.incrementAndGet();
+        }
+    }
+}
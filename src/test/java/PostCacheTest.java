@@ -0,0 +1,129 @@
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.service.CommentsCountReconciler;
+import ru.yandex.practicum.service.PostCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.cache.posts.enabled=true")
+@AutoConfigureMockMvc
+public class PostCacheTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PostCache postCache;
+    @Autowired
+    private CommentsCountReconciler commentsCountReconciler;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void postIsServedFromCacheUntilWrite() throws Exception {
+        jdbcTemplate.execute("""
+                        INSERT INTO posts (id, title, text, likes_count)
+                        VALUES (100, 'Cached Post', 'Test Post Text', 0);
+                """);
+
+        mockMvc.perform(get("/api/posts/100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Cached Post"));
+
+        double hitsBefore = hits();
+
+        //changed around the service: the cached post is served
+        jdbcTemplate.execute("UPDATE posts SET title = 'Renamed Post' WHERE id = 100");
+
+        mockMvc.perform(get("/api/posts/100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Cached Post"));
+
+        Assertions.assertEquals(hitsBefore + 1, hits());
+
+        //a like through the service evicts the post
+        mockMvc.perform(post("/api/posts/100/likes"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Renamed Post"))
+                .andExpect(jsonPath("$.likesCount").value(1));
+    }
+
+    @Test
+    void reconciledCommentsCountIsNotServedStale() throws Exception {
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (300, 'Post', 'Text', 0)");
+        mockMvc.perform(get("/api/posts/300"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.commentsCount").value(0));
+
+        //written around the application, comments_count stays 0
+        jdbcTemplate.update("INSERT INTO comments (id, text, post_id) VALUES (301, 'Comment', 300)");
+        commentsCountReconciler.reconcile();
+
+        mockMvc.perform(get("/api/posts/300"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.commentsCount").value(1));
+    }
+
+    @Test
+    void evictionDuringLoadDropsOnlyThatPost() {
+        AtomicInteger loads = new AtomicInteger();
+
+        //another post written while this one loads: the result is kept
+        postCache.get(201L, id -> {
+            postCache.evict(202L);
+            return load(id, loads);
+        });
+        postCache.get(201L, id -> load(id, loads));
+        Assertions.assertEquals(1, loads.get());
+
+        //the same post written while it loads: the possibly stale result is not kept
+        postCache.get(203L, id -> {
+            postCache.evict(203L);
+            return load(id, loads);
+        });
+        postCache.get(203L, id -> load(id, loads));
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    private static Post load(Long id, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return Post.builder().id(id).title("Post").text("Text").build();
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", "posts")
+                .tag("result", "hit")
+                .functionCounter()
+                .count();
+    }
+}
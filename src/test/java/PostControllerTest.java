@@ -18,6 +18,7 @@ import ru.yandex.practicum.configuration.DataSourceConfiguration;
 import ru.yandex.practicum.controller.PostController;
 import ru.yandex.practicum.model.Comment;
 import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.service.CommentsCountReconciler;
 import tools.jackson.databind.ObjectMapper;
 
 import java.util.Map;
@@ -36,6 +37,8 @@ public class PostControllerTest {
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
     @Autowired
     private MockMvc mockMvc;
+    @Autowired
+    private CommentsCountReconciler commentsCountReconciler;
 
     @BeforeEach
     void setup() {
@@ -108,6 +111,37 @@ public class PostControllerTest {
                 .andExpect(jsonPath("$.posts[0].title").value("Another one post"));
     }
 
+    @Test
+    void checkHashtagSearchGetPostsReturnIsOk() throws Exception {
+        String[] postsJson = {
+                """
+                        {"title": "First", "text": "Text", "tags": ["java", "spring", "java"]}
+                """,
+                """
+                        {"title": "Second", "text": "Text", "tags": ["kotlin"]}
+                """,
+                """
+                        {"title": "Third", "text": "Text", "tags": []}
+                """
+        };
+        for (String postJson : postsJson) {
+            mockMvc.perform(post("/api/posts")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(postJson))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/api/posts").param("search", "#spring").param("pageNumber", "1").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(1)))
+                .andExpect(jsonPath("$.posts[0].title").value("First"))
+                .andExpect(jsonPath("$.posts[0].tags", hasSize(2)));
+
+        mockMvc.perform(get("/api/posts").param("search", "#java #kotlin").param("pageNumber", "1").param("pageSize", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(2)));
+    }
+
     @Test
     void checkPagnationGetPostsReturnIsOk() throws Exception {
         for (int i = 1; i <= 10; i++) {
@@ -140,6 +174,49 @@ public class PostControllerTest {
                 .andExpect(jsonPath("$.posts", hasSize(2)));
     }
 
+    @Test
+    void checkCursorPaginationGetPostsReturnIsOk() throws Exception {
+        for (int i = 1; i <= 10; i++) {
+            //language=SQL
+            String sql = """
+                            INSERT INTO posts (id, title, text, likes_count)
+                            VALUES (:id, 'Another one post', 'Test Post Text', 0);
+                    """;
+            namedParameterJdbcTemplate.update(sql, Map.of("id", i));
+        }
+
+        MvcResult firstPage = mockMvc.perform(get("/api/posts?search=&pageSize=4&cursor="))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(4)))
+                .andExpect(jsonPath("$.posts[0].id").value(10))
+                .andExpect(jsonPath("$.posts[3].id").value(7))
+                .andExpect(jsonPath("$.hasPrev").value(false))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn();
+
+        ObjectMapper mapper = new ObjectMapper();
+        String cursor = mapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asString();
+
+        MvcResult secondPage = mockMvc.perform(get("/api/posts?search=&pageSize=4&cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(4)))
+                .andExpect(jsonPath("$.posts[0].id").value(6))
+                .andExpect(jsonPath("$.hasPrev").value(true))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn();
+
+        cursor = mapper.readTree(secondPage.getResponse().getContentAsString()).get("nextCursor").asString();
+
+        mockMvc.perform(get("/api/posts?search=&pageSize=4&cursor=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts", hasSize(2)))
+                .andExpect(jsonPath("$.posts[1].id").value(1))
+                .andExpect(jsonPath("$.hasNext").value(false));
+
+        mockMvc.perform(get("/api/posts?search=&pageSize=4&cursor=not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getSinglePostReturnIsOk() throws Exception {
         jdbcTemplate.execute("""
@@ -156,6 +233,37 @@ public class PostControllerTest {
                 .andExpect(jsonPath("$.text").value("Test Post Text"));
     }
 
+    @Test
+    void getSinglePostWithTagsAndCommentsReturnIsOk() throws Exception {
+        jdbcTemplate.execute("""
+                        INSERT INTO posts (id, title, text, likes_count)
+                        VALUES (1, 'Single Post', 'Test Post Text', 0);
+                """);
+        jdbcTemplate.execute("""
+                        INSERT INTO posts (id, title, text, likes_count)
+                        VALUES (2, 'Other Post', 'Test Post Text', 0);
+                """);
+        for (String comment : new String[]{"First", "Second"}) {
+            mockMvc.perform(post("/api/posts/1/comments")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(String.format("{\"text\": \"%s\", \"postId\": 1}", comment)))
+                    .andExpect(status().isOk());
+        }
+        mockMvc.perform(post("/api/posts/2/comments")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"text\": \"Other\", \"postId\": 2}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Single Post"))
+                .andExpect(jsonPath("$.tags", hasSize(0)))
+                .andExpect(jsonPath("$.commentsCount").value(2));
+
+        mockMvc.perform(get("/api/posts/3"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void addPostReturnIsOk() throws Exception {
         String postJsonBody = """
@@ -479,6 +587,33 @@ public class PostControllerTest {
                 .andExpect(jsonPath("$", hasSize(0)));
     }
 
+    @Test
+    void reconcileCommentsCountReturnIsOk() throws Exception {
+        jdbcTemplate.execute("""
+                        INSERT INTO posts (id, title, text, likes_count)
+                        VALUES (1, 'Single Post', 'Test Post Text', 0);
+                """);
+        //written around the application, comments_count drifts
+        jdbcTemplate.execute("""
+                        INSERT INTO comments (id, text, post_id)
+                        VALUES (10, 'First', 1), (11, 'Second', 1);
+                """);
+
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.commentsCount").value(0));
+
+        commentsCountReconciler.reconcile();
+
+        mockMvc.perform(get("/api/posts/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.commentsCount").value(2));
+
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts[0].commentsCount").value(2));
+    }
+
     @Test
     void postLikeReturnIsOk() throws Exception {
         jdbcTemplate.execute("""
@@ -0,0 +1,118 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.BackendAppApplication;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class, properties = "blog.export.fetch-size=7")
+@AutoConfigureMockMvc
+public class PostExportTest {
+    private static final int POSTS = 30;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        for (int i = 1; i <= POSTS; i++) {
+            jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, ?, 'Text', ?)",
+                    i, "Post " + i, i);
+        }
+        jdbcTemplate.execute("INSERT INTO tags (name) SELECT 'export' WHERE NOT EXISTS (SELECT 1 FROM tags WHERE name = 'export')");
+        jdbcTemplate.execute("INSERT INTO post_tag_links (tag_id, post_id) SELECT id, 2 FROM tags WHERE name = 'export'");
+        jdbcTemplate.update("INSERT INTO comments (id, text, post_id) VALUES (101, 'first', 2), (102, 'second', 2)");
+        jdbcTemplate.update("UPDATE posts SET comments_count = 2 WHERE id = 2");
+        jdbcTemplate.update("""
+                INSERT INTO post_image (post_id, file_name, content_type, file_size, file_data, content_hash)
+                VALUES (3, 'cover.png', 'image/png', 3, X'010203', 'abc')
+                """);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void exportsEveryPostAsOneLine() throws Exception {
+        List<JsonNode> lines = export("/api/posts/export");
+
+        Assertions.assertEquals(POSTS, lines.size());
+        for (int i = 0; i < POSTS; i++) {
+            Assertions.assertEquals(i + 1, lines.get(i).get("id").asLong());
+        }
+
+        JsonNode withTagsAndComments = lines.get(1);
+        Assertions.assertEquals("export", withTagsAndComments.get("tags").get(0).asString());
+        Assertions.assertEquals(2, withTagsAndComments.get("commentsCount").asInt());
+        Assertions.assertEquals("first", withTagsAndComments.get("comments").get(0).get("text").asString());
+        Assertions.assertEquals("second", withTagsAndComments.get("comments").get(1).get("text").asString());
+
+        Assertions.assertEquals(0, lines.get(0).get("tags").size());
+        Assertions.assertNull(lines.get(2).get("image"));
+    }
+
+    @Test
+    void exportsImageMetadataOnRequest() throws Exception {
+        List<JsonNode> lines = export("/api/posts/export?images=true");
+
+        JsonNode image = lines.get(2).get("image");
+        Assertions.assertEquals("cover.png", image.get("fileName").asString());
+        Assertions.assertEquals(3, image.get("size").asLong());
+        Assertions.assertNull(lines.get(0).get("image"));
+    }
+
+    @Test
+    void exportCanBeImportedBack() throws Exception {
+        MvcResult exported = mockMvc.perform(get("/api/posts/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String ndjson = mockMvc.perform(asyncDispatch(exported))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(post("/api/posts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(POSTS * 2, jdbcTemplate.queryForObject("SELECT count(*) FROM posts", Integer.class));
+        Assertions.assertEquals(4, jdbcTemplate.queryForObject("SELECT count(*) FROM comments", Integer.class));
+    }
+
+    private List<JsonNode> export(String url) throws Exception {
+        MvcResult result = mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertTrue(body.endsWith("\n"));
+        return body.lines().map(objectMapper::readTree).toList();
+    }
+}
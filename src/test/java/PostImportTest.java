@@ -0,0 +1,143 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.service.PostImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class,
+        properties = {"blog.import.chunk-size=100", "blog.posts.count-strategy=cached"})
+@AutoConfigureMockMvc
+public class PostImportTest {
+    private static final int POSTS = 250;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PostImportService postImportService;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void importsPostsWithTagsAndCommentsInChunks() throws Exception {
+        //the count is cached before the import and must be invalidated by it
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastPage").value(0));
+
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 1; i <= POSTS; i++) {
+            ndjson.append("""
+                    {"title": "Imported %d", "text": "Text %d", "tags": ["archive", "tag%d", "archive"], "likesCount": 3, \
+                    "comments": [{"text": "First comment"}, {"text": "Second comment"}]}
+                    """.formatted(i, i, i % 5));
+        }
+
+        mockMvc.perform(post("/api/posts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts").value(POSTS))
+                .andExpect(jsonPath("$.tags").value(POSTS * 2))
+                .andExpect(jsonPath("$.comments").value(POSTS * 2))
+                .andExpect(jsonPath("$.rows").value(POSTS * 5))
+                .andExpect(jsonPath("$.chunks").value(3))
+                .andExpect(jsonPath("$.rowsPerSecond", greaterThanOrEqualTo(0)));
+
+        Assertions.assertEquals(POSTS, jdbcTemplate.queryForObject("SELECT count(*) FROM posts", Integer.class));
+        Assertions.assertEquals(POSTS * 2, jdbcTemplate.queryForObject("SELECT count(*) FROM comments", Integer.class));
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM posts WHERE comments_count <> 2 OR likes_count <> 3", Integer.class));
+
+        mockMvc.perform(get("/api/posts?search=&pageNumber=1&pageSize=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastPage").value(POSTS / 10));
+        mockMvc.perform(get("/api/posts").param("search", "#tag1").param("pageNumber", "1").param("pageSize", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(POSTS / 5));
+    }
+
+    @Test
+    void invalidLineKeepsCommittedChunks() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 1; i <= 150; i++) {
+            ndjson.append("{\"title\": \"Imported %d\", \"text\": \"Text\"}\n".formatted(i));
+        }
+        ndjson.append("{\"title\": \"Broken\", \"text\": \n");
+
+        mockMvc.perform(post("/api/posts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson.toString()))
+                .andExpect(status().isBadRequest());
+
+        //the first chunk of 100 is committed, the second one was not written
+        Assertions.assertEquals(100, jdbcTemplate.queryForObject("SELECT count(*) FROM posts", Integer.class));
+    }
+
+    @Test
+    void postWithoutTitleIsRejected() throws Exception {
+        mockMvc.perform(post("/api/posts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"text\": \"No title\"}\n"))
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM posts", Integer.class));
+    }
+
+    @Test
+    void postWithTooManyCommentsIsRejected() throws Exception {
+        //comments_count is a SMALLINT, so the counter would wrap
+        String comments = String.join(",", Collections.nCopies(Short.MAX_VALUE + 1, "{\"text\": \"c\"}"));
+
+        mockMvc.perform(post("/api/posts/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{\"title\": \"Popular\", \"text\": \"Text\", \"comments\": [" + comments + "]}\n"))
+                .andExpect(status().isBadRequest());
+
+        Assertions.assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM posts", Integer.class));
+    }
+
+    @Test
+    void brokenBodyIsReportedAsIoError() {
+        InputStream body = new SequenceInputStream(
+                new ByteArrayInputStream("{\"title\": \"Imported\", \"text\": \"Text\"}\n{\"title\": ".getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+                });
+
+        IOException e = Assertions.assertThrows(IOException.class, () -> postImportService.importPosts(body));
+        Assertions.assertEquals("Connection reset", e.getMessage());
+    }
+}
@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+public class TagDiffTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    @Qualifier("JdbcTagRepository")
+    private TagRepository tagRepository;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (1, 'Post', 'Text', 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+    }
+
+    @Test
+    void duplicatesAreSavedOnce() {
+        tagRepository.saveTagsForPost(1L, List.of("diff_a", "diff_b", "diff_a"));
+
+        Assertions.assertEquals(Set.of("diff_a", "diff_b"), Set.copyOf(tagRepository.getTagsForPost(1L)));
+        Assertions.assertEquals(2, linksCount());
+    }
+
+    @Test
+    void onlyChangedTagsAreWritten() {
+        tagRepository.saveTagsForPost(1L, List.of("diff_a", "diff_b", "diff_c"));
+        Long keptTagId = tagId("diff_a");
+
+        tagRepository.saveTagsForPost(1L, List.of("diff_a", "diff_c", "diff_d", "diff_d"));
+
+        Assertions.assertEquals(Set.of("diff_a", "diff_c", "diff_d"), Set.copyOf(tagRepository.getTagsForPost(1L)));
+        Assertions.assertEquals(3, linksCount());
+        //the kept link still points to the same dictionary entry
+        Assertions.assertEquals(keptTagId, jdbcTemplate.queryForObject(
+                "SELECT tag_id FROM post_tag_links WHERE post_id = 1 AND tag_id = ?", Long.class, keptTagId));
+    }
+
+    @Test
+    void unchangedTagsDoNotTouchDictionary() {
+        tagRepository.saveTagsForPost(1L, List.of("diff_a", "diff_b"));
+        Long maxTagId = jdbcTemplate.queryForObject("SELECT max(id) FROM tags", Long.class);
+
+        tagRepository.saveTagsForPost(1L, List.of("diff_b", "diff_a"));
+
+        Assertions.assertEquals(maxTagId, jdbcTemplate.queryForObject("SELECT max(id) FROM tags", Long.class));
+        Assertions.assertEquals(Set.of("diff_a", "diff_b"), Set.copyOf(tagRepository.getTagsForPost(1L)));
+    }
+
+    @Test
+    void emptyListRemovesAllTags() {
+        tagRepository.saveTagsForPost(1L, List.of("diff_a", "diff_b"));
+
+        tagRepository.saveTagsForPost(1L, List.of());
+
+        Assertions.assertEquals(0, linksCount());
+    }
+
+    private int linksCount() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM post_tag_links WHERE post_id = 1", Integer.class);
+    }
+
+    private Long tagId(String name) {
+        return jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = ?", Long.class, name);
+    }
+}
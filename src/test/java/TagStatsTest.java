@@ -0,0 +1,146 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.BackendAppApplication;
+import ru.yandex.practicum.model.Post;
+import ru.yandex.practicum.repository.interfaces.TagRepository;
+import ru.yandex.practicum.service.TagRanking;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(classes = BackendAppApplication.class)
+@AutoConfigureMockMvc
+public class TagStatsTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    @Qualifier("JdbcTagRepository")
+    private TagRepository tagRepository;
+    @Autowired
+    private TagRanking tagRanking;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        //other tests delete posts around the service
+        tagRepository.reconcileTagStats();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DELETE FROM posts");
+        tagRepository.reconcileTagStats();
+    }
+
+    @Test
+    void countsFollowPostChanges() throws Exception {
+        Post first = createPost("stat_a", "stat_b");
+        createPost("stat_a");
+
+        Assertions.assertEquals(2, postCount("stat_a"));
+        Assertions.assertEquals(1, postCount("stat_b"));
+
+        mockMvc.perform(put("/api/posts/" + first.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"title": "Post", "text": "Text", "tags": ["stat_a", "stat_c", "stat_c"]}
+                                """))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(2, postCount("stat_a"));
+        Assertions.assertEquals(0, postCount("stat_b"));
+        Assertions.assertEquals(1, postCount("stat_c"));
+
+        mockMvc.perform(delete("/api/posts/" + first.getId()))
+                .andExpect(status().isOk());
+
+        Assertions.assertEquals(1, postCount("stat_a"));
+        Assertions.assertEquals(0, postCount("stat_c"));
+        Assertions.assertEquals(0, tagRepository.reconcileTagStats());
+    }
+
+    @Test
+    void rankingIsServedFromRefreshedSnapshot() throws Exception {
+        createPost("rank_a", "rank_b");
+        createPost("rank_a", "rank_b");
+        createPost("rank_a");
+
+        tagRanking.refresh();
+        JsonNode tags = getTags(2);
+
+        Assertions.assertEquals(2, tags.get("popular").size());
+        Assertions.assertEquals("rank_a", tags.get("popular").get(0).get("name").asString());
+        Assertions.assertEquals(3, tags.get("popular").get(0).get("postCount").asInt());
+        Assertions.assertEquals("rank_b", tags.get("popular").get(1).get("name").asString());
+
+        //every addition counts as about 1 right after it happened
+        JsonNode trending = tags.get("trending").get(0);
+        Assertions.assertEquals("rank_a", trending.get("name").asString());
+        Assertions.assertEquals(3.0, trending.get("trend").asDouble(), 0.01);
+
+        //new posts are visible only after the next refresh
+        createPost("rank_d");
+        createPost("rank_d");
+        createPost("rank_d");
+        createPost("rank_d");
+        Assertions.assertEquals("rank_a", getTags(1).get("popular").get(0).get("name").asString());
+
+        tagRanking.refresh();
+        Assertions.assertEquals("rank_d", getTags(1).get("popular").get(0).get("name").asString());
+    }
+
+    @Test
+    void reconcileRepairsCounts() throws Exception {
+        createPost("stat_a");
+        jdbcTemplate.update("UPDATE tag_stats SET post_count = 42 WHERE tag_id = (SELECT id FROM tags WHERE name = 'stat_a')");
+
+        Assertions.assertEquals(1, tagRepository.reconcileTagStats());
+        Assertions.assertEquals(1, postCount("stat_a"));
+    }
+
+    private Post createPost(String... tags) throws Exception {
+        String response = mockMvc.perform(post("/api/posts")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Post.builder()
+                                .title("Post")
+                                .text("Text")
+                                .tags(List.of(tags))
+                                .build())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, Post.class);
+    }
+
+    private JsonNode getTags(int limit) throws Exception {
+        String response = mockMvc.perform(get("/api/tags").param("limit", String.valueOf(limit)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private int postCount(String tag) {
+        return jdbcTemplate.queryForObject(
+                "SELECT post_count FROM tag_stats WHERE tag_id = (SELECT id FROM tags WHERE name = ?)", Integer.class, tag);
+    }
+}
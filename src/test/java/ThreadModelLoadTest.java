@@ -0,0 +1,168 @@
+import jakarta.servlet.Filter;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.BackendAppApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// Нагрузочное сравнение потоков Tomcat: одни и те же запросы к ленте при одинаковой конкурентности
+// сначала к серверу с ограниченным пулом обычных потоков, затем к серверу на виртуальных потоках.
+// Каждый запрос дополнительно ждёт DOWNSTREAM_LATENCY — как ожидание ответа медленной БД, которое
+// встроенная H2 не воспроизводит. Для замера на PostgreSQL достаточно задать spring.datasource.url.
+// Запускается отдельно от остальных тестов: gradle loadTest
+@Tag("load")
+public class ThreadModelLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(ThreadModelLoadTest.class);
+
+    static final int CONCURRENCY = 64;
+    static final int REQUESTS_PER_CLIENT = 10;
+    //fewer request threads than concurrent clients, as in a capped production pool: the platform run
+    //can't exceed TOMCAT_THREADS / DOWNSTREAM_LATENCY = 40 req/s, well under what even one core serves
+    static final int TOMCAT_THREADS = 8;
+    static final Duration DOWNSTREAM_LATENCY = Duration.ofMillis(200);
+    //frames of the request's database access: a pin there holds a carrier for the whole query
+    private static final List<String> JDBC_PATH = List.of("java.sql.", "javax.sql.", "com.zaxxer.hikari.",
+            "org.h2.", "org.postgresql.", "org.springframework.jdbc.", "ru.yandex.practicum.repository.");
+
+    @Test
+    void virtualThreadsServeTheFeedBetterThanCappedPlatformThreads() throws Exception {
+        Map<String, LongAdder> pinnedFrames = new ConcurrentHashMap<>();
+        LoadResult platform = measure(false, pinnedFrames);
+        LoadResult virtual = measure(true, pinnedFrames);
+
+        String summary = "platform threads: " + platform + "; virtual threads: " + virtual
+                + "; pinned on the JDBC path: " + pinnedFrames;
+        log.info(summary);
+
+        //a blocked platform thread holds one of TOMCAT_THREADS slots, a blocked virtual one only unmounts
+        Assertions.assertTrue(virtual.throughput() > platform.throughput(), summary);
+        Assertions.assertTrue(virtual.p99() < platform.p99(), summary);
+        Assertions.assertTrue(pinnedFrames.isEmpty(), summary);
+    }
+
+    private LoadResult measure(boolean virtualThreads, Map<String, LongAdder> pinnedFrames) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(
+                BackendAppApplication.class, DownstreamLatencyConfiguration.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--spring.datasource.hikari.maximum-pool-size=20");
+             RecordingStream pinning = new RecordingStream()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            jdbcTemplate.execute("DELETE FROM posts");
+            for (int i = 1; i <= 50; i++) {
+                jdbcTemplate.update("INSERT INTO posts (id, title, text, likes_count) VALUES (?, 'Load post', 'Text', 0)", i);
+            }
+
+            pinning.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(5)).withStackTrace();
+            pinning.onEvent("jdk.VirtualThreadPinned", event -> {
+                if (event.getStackTrace() == null) {
+                    return;
+                }
+                //the innermost frame of the JDBC path shows what held the carrier: the driver, the pool or our code
+                event.getStackTrace().getFrames().stream()
+                        .filter(RecordedFrame::isJavaFrame)
+                        .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName())
+                        .filter(frame -> JDBC_PATH.stream().anyMatch(frame::startsWith))
+                        .findFirst()
+                        .ifPresent(frame -> pinnedFrames.computeIfAbsent(frame, key -> new LongAdder()).increment());
+            });
+            pinning.startAsync();
+
+            try {
+                return run(Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port")));
+            } finally {
+                pinning.stop();
+                jdbcTemplate.execute("DELETE FROM posts");
+            }
+        }
+    }
+
+    private LoadResult run(int port) throws Exception {
+        URI uri = URI.create("http://localhost:" + port + "/api/posts?search=&pageNumber=1&pageSize=10");
+        long[] latencies = new long[CONCURRENCY * REQUESTS_PER_CLIENT];
+        LongAdder errors = new LongAdder();
+
+        //the clients are the same platform threads in both runs, so only the server differs; virtual
+        //clients would share the carriers with the server's virtual threads and starve them on few cores
+        try (ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+             HttpClient httpClient = HttpClient.newHttpClient()) {
+            List<Future<?>> futures = new ArrayList<>();
+            long begin = System.nanoTime();
+            for (int client = 0; client < CONCURRENCY; client++) {
+                int offset = client * REQUESTS_PER_CLIENT;
+                futures.add(clients.submit(() -> {
+                    for (int i = 0; i < REQUESTS_PER_CLIENT; i++) {
+                        long start = System.nanoTime();
+                        HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(uri).build(),
+                                HttpResponse.BodyHandlers.discarding());
+                        latencies[offset + i] = System.nanoTime() - start;
+                        if (response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            double throughput = latencies.length / ((System.nanoTime() - begin) / 1e9);
+
+            Assertions.assertEquals(0, errors.sum());
+            Arrays.sort(latencies);
+            return new LoadResult(throughput, latencies[latencies.length / 2] / 1_000_000,
+                    latencies[(int) (latencies.length * 0.99)] / 1_000_000);
+        }
+    }
+
+    private record LoadResult(double throughput, long p50, long p99) {
+        @Override
+        public String toString() {
+            return Math.round(throughput) + " req/s, p50 " + p50 + " ms, p99 " + p99 + " ms";
+        }
+    }
+
+    @TestConfiguration
+    static class DownstreamLatencyConfiguration {
+        @Bean
+        FilterRegistrationBean<Filter> downstreamLatencyFilter() {
+            FilterRegistrationBean<Filter> registration = new FilterRegistrationBean<>(
+                    (request, response, chain) -> {
+                        try {
+                            //blocking wait: occupies a platform thread, only unmounts a virtual one
+                            Thread.sleep(DOWNSTREAM_LATENCY);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        chain.doFilter(request, response);
+                    });
+            registration.addUrlPatterns("/api/posts");
+            return registration;
+        }
+    }
+}